@@ -1,22 +1,38 @@
 package de.joergwille.playground.shareddatamodel.swing;
 
+import de.joergwille.playground.shareddatamodel.swing.model.AveRowProvider;
+import de.joergwille.playground.shareddatamodel.swing.model.AveRowSorter;
+import de.joergwille.playground.shareddatamodel.swing.model.AveTableModel;
+import de.joergwille.playground.shareddatamodel.swing.model.AveTableRowEntry;
+import de.joergwille.playground.shareddatamodel.swing.model.AveVirtualTableModel;
+import de.joergwille.playground.shareddatamodel.swing.model.AvfTableParser;
 import de.joergwille.playground.shareddatamodel.swing.model.BestWidthStringCellRenderer;
 import java.awt.Color;
 import java.awt.Component;
 import java.awt.Font;
-import java.util.HashSet;
+import java.beans.PropertyChangeListener;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.swing.BorderFactory;
 import javax.swing.JLabel;
 import javax.swing.JTable;
 import javax.swing.RowFilter;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 import javax.swing.border.Border;
-import javax.swing.table.DefaultTableModel;
-import javax.swing.table.TableRowSorter;
+import javax.swing.table.TableModel;
 
 /**
  *
@@ -29,19 +45,14 @@ import javax.swing.table.TableRowSorter;
 @SuppressWarnings("serial")
 public class AveDisplayTablePanel extends AveTablePanel {
 
-    private static final Matcher TWO_DIM_TABLE = Pattern.compile("(?s)^\\(\\s*\\[.*\\]\\s*\\)").matcher("");
-    // Define pattern for save split of rows, since column might contain function with ',', e.g. parval(a,test0)
-    private static final Pattern safeCommaMatch = Pattern.compile(
-            "\\s*,\\s*  # Match a comma\n" +
-            "(?!        # only if it's not followed by...\n" +
-            " [^(]*     #   any number of characters except opening parens\n" +
-            " \\)       #   followed by a closing parens\n" +
-            ")          # End of negative lookahead\n",
-            Pattern.COMMENTS);
+    private static final int LOAD_CHUNK_SIZE = 1024;
     private final String[] tableHeader;
-    private TableRowSorter<DefaultTableModel> tableSorter;
+    private AveRowSorter tableSorter;
+    private boolean parallelSort;
+    private RowsFilter rowsFilter; // null if no rows filter is applied
     private Map<String, Color> tableCellColorMap;
     private int separatorColumn = 0;
+    private ContentsLoader contentsLoader; // null if no contents are being loaded
 
     /**
      * Creates a new instance of aveDisplayTablePanel, all entries center aligned.
@@ -115,7 +126,7 @@ public class AveDisplayTablePanel extends AveTablePanel {
         super.table.setBackground(Color.red);
 
          // Allow to sort the rows just by clicking the header.
-        super.table.setAutoCreateRowSorter(true);
+        this.setRowSorter();
 
 //        if (table.getColumnCount() > 0) {
 //            if (header.matches("^:+$")) {
@@ -126,6 +137,10 @@ public class AveDisplayTablePanel extends AveTablePanel {
             table.setDefaultRenderer(table.getColumnClass(0), new AveDisplayTableCellRenderer(cellAlignment));
 //        }
 
+        if (contents != null && !contents.isEmpty()) {
+            this.setContents(contents);
+        }
+
         // Layout is BorderLayout.
 //        this.setLayout(new BorderLayout());
 
@@ -155,8 +170,31 @@ public class AveDisplayTablePanel extends AveTablePanel {
      * Creates and add a new row sorter to the table.
      */
     public void setRowSorter() {
-//        tableSorter = new TableRowSorter<>((TableModel)super.getTableModel());
-//        table.setRowSorter(tableSorter);
+        tableSorter = new AveRowSorter(super.getTableModel());
+        tableSorter.setParallelSort(parallelSort);
+        table.setRowSorter(tableSorter);
+    }
+
+    /**
+     * Specifies if large tables are sorted on all cores, see
+     * {@link AveRowSorter#setParallelSort(boolean)}.
+     *
+     * @param parallelSort <i>true</i> to sort in parallel.
+     */
+    public void setParallelSort(final boolean parallelSort) {
+        this.parallelSort = parallelSort;
+        if (tableSorter != null) {
+            tableSorter.setParallelSort(parallelSort);
+        }
+    }
+
+    /**
+     * Returns the duration of the last sort of all rows of the table.
+     *
+     * @return the duration in milliseconds.
+     */
+    public long getLastSortTime() {
+        return tableSorter != null ? TimeUnit.NANOSECONDS.toMillis(tableSorter.getLastSortNanos()) : 0;
     }
 
     /**
@@ -183,25 +221,86 @@ public class AveDisplayTablePanel extends AveTablePanel {
      * @param filteredRows An array holding the indices of the rows to be filtered.
      */
     public void applyRowsFilter(final int[] filteredRows) {
-        final RowFilter<DefaultTableModel, Object> rf = new RowFilter<DefaultTableModel, Object>() {
+        final BitSet rows = new BitSet(super.getTableModel().getRowCount());
+        for (final int row : filteredRows) {
+            rows.set(row);
+        }
+        // Add table sorted, if not yet existent or replaced with the table model.
+        if (tableSorter == null || table.getRowSorter() != tableSorter) {
+            setRowSorter();
+        }
+        rowsFilter = new RowsFilter(rows);
+        tableSorter.setRowFilter(rowsFilter);
+    }
+
+    /**
+     * Adds rows to the rows filter applied by {@link #applyRowsFilter(int[])}.
+     * Only the added rows are filtered and sorted into the displayed rows, the
+     * other rows are not sorted again.
+     *
+     * @param rows The indices of the rows to be added.
+     */
+    public void addFilteredRows(final int... rows) {
+        this.updateFilteredRows(rows, true);
+    }
 
-            @Override
-            public boolean include(final Entry<? extends DefaultTableModel, ? extends Object> entry) {
-                final Set<Integer> setOfIndices = new HashSet<>();
-                for (final int row : filteredRows) {
-                    setOfIndices.add(row);
+    /**
+     * Removes rows from the rows filter applied by
+     * {@link #applyRowsFilter(int[])}. The other rows are not sorted again.
+     *
+     * @param rows The indices of the rows to be removed.
+     */
+    public void removeFilteredRows(final int... rows) {
+        this.updateFilteredRows(rows, false);
+    }
+
+    /**
+     * Removes the rows filter, all rows are displayed.
+     */
+    public void clearRowsFilter() {
+        rowsFilter = null;
+        if (tableSorter != null) {
+            tableSorter.setRowFilter(null);
+        }
+    }
+
+    private void updateFilteredRows(final int[] rows, final boolean include) {
+        if (rowsFilter == null || tableSorter == null || table.getRowSorter() != tableSorter
+                || tableSorter.getRowFilter() != rowsFilter) {
+            throw new IllegalStateException("No rows filter is applied.");
+        }
+        // Only the rows, which actually change, are filtered and sorted again.
+        final int rowCount = super.getTableModel().getRowCount();
+        final int[] changedRows = new int[rows.length];
+        int count = 0;
+        for (final int row : rows) {
+            if (rowsFilter.rows.get(row) != include) {
+                rowsFilter.rows.set(row, include);
+                if (row < rowCount) {
+                    changedRows[count++] = row;
                 }
-                return setOfIndices.contains((Integer) entry.getIdentifier());
             }
-        };
-        // Add table sorted, if not yet existent.
-        if (tableSorter == null) {
-            setRowSorter();
         }
-        tableSorter.setRowFilter(rf);
-        // Remove single scroll pane and replace it with the filtered table.
-        this.remove(0);
-//        this.add(new AveTableScrollPane(table, JScrollPane.VERTICAL_SCROLLBAR_NEVER), BorderLayout.CENTER);
+        if (count > 0) {
+            tableSorter.filterChanged(Arrays.copyOf(changedRows, count));
+        }
+    }
+
+    /**
+     * A row filter, which includes the rows whose model index is set.
+     */
+    private static final class RowsFilter extends RowFilter<TableModel, Integer> {
+
+        private final BitSet rows;
+
+        RowsFilter(final BitSet rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public boolean include(final Entry<? extends TableModel, ? extends Integer> entry) {
+            return this.rows.get(entry.getIdentifier());
+        }
     }
 
     /**
@@ -269,51 +368,248 @@ public class AveDisplayTablePanel extends AveTablePanel {
     /**
      * Fills a (n,m) generic table with contents of form (a11,a21,..,an1) for m=1 or
      * ([a11,..,a1m],[a21,..], ,[..,anm]) for m &gt; 1.
-     * Currently only raw error check done.
+     * The contents are parsed in a single pass and replace all rows with a single notification.
+     * If the contents can not be parsed the table is not changed.
      *
      * @param contents String containing the contents in AVF format.
+     * @exception IllegalStateException if the rows are defined by a row provider.
      */
-    private void setContents(final String contents) {
-
-        if (TWO_DIM_TABLE.reset(contents).matches()) {
-            // m > 0, two-dimensional array
-            final String sub = contents.substring(contents.indexOf('[') + 1, contents.lastIndexOf(']'));
-            final String[] rows = sub.trim().split("\\s*\\]\\s*\\,\\s*\\[\\s*");
-            final int nbrOfRows = rows.length;
-            // get column entries for first row
-            String[] row = safeCommaMatch.split(rows[0], -1);
-            final int nbrOfCols = row.length;
-            // Initialize 2-dimensional array and assign first row
-            final String[][] values = new String[nbrOfRows][nbrOfCols];
-            values[0] = row;
-            // Get other rows
-            for (int i = 1; i < nbrOfRows; i++) {
-                row = safeCommaMatch.split(rows[i], -1);
-                if (row.length != nbrOfCols) {
-//                    AveMsg.error(538, "Inconsistent number of columns in table definition -> not loaded!");
-                    return;
-                } else {
-                    values[i] = row;
-                }
-            }
+    private void setContents(final CharSequence contents) {
+        final AveTableModel contentsModel = this.getContentsModel();
+        this.cancelLoading();
+        final List<AveTableRowEntry> rows;
+        try {
+            rows = AvfTableParser.parseRows(contents, contentsModel.getColumnCount());
+        } catch (IllegalArgumentException e) {
+//            AveMsg.error(538, "Inconsistent number of columns in table definition -> not loaded!");
+            return;
+        }
+        contentsModel.setRows(rows);
+    }
 
-            // Store values in table.
-            for (int idx = 0; idx < nbrOfRows; idx++) {
-                if (idx >= super.getTableModel().getRowCount()) {
-                    addRow();
+    /**
+     * Fills the table with contents in AVF format read from a reader, see
+     * {@link #setContents(CharSequence)}. The reader is not closed.
+     *
+     * @param reader Reader providing the contents in AVF format.
+     * @throws IOException if reading the contents fails.
+     * @exception IllegalStateException if the rows are defined by a row provider.
+     */
+    public void setContents(final Reader reader) throws IOException {
+        final AveTableModel contentsModel = this.getContentsModel();
+        this.cancelLoading();
+        final List<AveTableRowEntry> rows;
+        try {
+            rows = AvfTableParser.parseRows(reader, contentsModel.getColumnCount());
+        } catch (IllegalArgumentException e) {
+//            AveMsg.error(538, "Inconsistent number of columns in table definition -> not loaded!");
+            return;
+        }
+        contentsModel.setRows(rows);
+    }
+
+    // Returns the model, which holds the contents. After setRowProvider the rows are defined by the provider.
+    private AveTableModel getContentsModel() {
+        if (!(super.getTableModel() instanceof AveTableModel)) {
+            throw new IllegalStateException("The rows of the table are defined by an 'AveRowProvider'.");
+        }
+        return (AveTableModel) super.getTableModel();
+    }
+
+    /**
+     * Loads contents in AVF format asynchronously, see
+     * {@link #setContents(CharSequence)}. The contents are parsed off the EDT
+     * and the rows are appended in chunks, so the first rows are displayed
+     * while the rest is still being parsed. A load in progress is cancelled.
+     * The <i>progress</i> property of the returned worker is the percentage
+     * of the contents read. Cancelling the worker stops loading and keeps the
+     * rows loaded so far. If the contents can not be parsed, the table is
+     * emptied.
+     *
+     * @param contents String containing the contents in AVF format, which must
+     * not be modified while loading.
+     * @param progressListener Listener for the properties of the worker, e.g.
+     * <i>progress</i> and <i>state</i>, might be <i>null</i>.
+     * @return The worker, whose result is the number of rows loaded.
+     * @exception IllegalStateException if the rows are defined by a row provider.
+     */
+    public SwingWorker<Integer, Void> loadContents(final CharSequence contents,
+            final PropertyChangeListener progressListener) {
+        return this.startContentsLoader(new ContentsLoader(contents, null), progressListener);
+    }
+
+    /**
+     * Loads contents in AVF format asynchronously from a reader, see
+     * {@link #loadContents(CharSequence, PropertyChangeListener)}. Since the
+     * length of the contents is unknown, the <i>progress</i> property is only
+     * set to 100 when all rows are loaded.
+     *
+     * @param reader Reader providing the contents in AVF format, which is
+     * closed when loading finished.
+     * @param progressListener Listener for the properties of the worker, e.g.
+     * <i>progress</i> and <i>state</i>, might be <i>null</i>.
+     * @return The worker, whose result is the number of rows loaded.
+     * @exception IllegalStateException if the rows are defined by a row provider.
+     */
+    public SwingWorker<Integer, Void> loadContents(final Reader reader, final PropertyChangeListener progressListener) {
+        return this.startContentsLoader(new ContentsLoader(null, reader), progressListener);
+    }
+
+    private SwingWorker<Integer, Void> startContentsLoader(final ContentsLoader loader,
+            final PropertyChangeListener progressListener) {
+        this.cancelLoading();
+        loader.contentsModel.setRows(Collections.emptyList());
+        if (progressListener != null) {
+            loader.addPropertyChangeListener(progressListener);
+        }
+        this.contentsLoader = loader;
+        loader.execute();
+        return loader;
+    }
+
+    /**
+     * Cancels loading contents, the rows loaded so far are kept.
+     */
+    public void cancelLoading() {
+        if (this.contentsLoader != null) {
+            this.contentsLoader.cancel(true);
+            this.contentsLoader = null;
+        }
+    }
+
+    /**
+     * Returns if contents are being loaded asynchronously.
+     *
+     * @return <i>true</i> if contents are being loaded.
+     */
+    public boolean isLoading() {
+        return this.contentsLoader != null;
+    }
+
+    /**
+     * Replaces the rows of the table by the rows of a row provider, see
+     * {@link AveTablePanel#setRowProvider(AveRowProvider)}. The rows filter
+     * is removed and a new row sorter is created for the new table model. It
+     * can filter the rows, but does not sort them, since sorting would create
+     * every row of the provider.
+     *
+     * @param rowProvider the provider of the rows
+     * @return The AveVirtualTableModel which now is the model of the table.
+     */
+    @Override
+    public AveVirtualTableModel setRowProvider(final AveRowProvider rowProvider) {
+        this.cancelLoading();
+        final AveVirtualTableModel virtualTableModel = super.setRowProvider(rowProvider);
+        rowsFilter = null;
+        this.setRowSorter();
+        return virtualTableModel;
+    }
+
+    /**
+     * Notifies this component that it no longer has a parent component.
+     * Loading contents is cancelled.
+     */
+    @Override
+    public void removeNotify() {
+        this.cancelLoading();
+        super.removeNotify();
+    }
+
+    /**
+     * Parses contents off the EDT and appends the parsed rows to the table
+     * model on the EDT. Chunks of rows, which arrive while the EDT is busy,
+     * are appended together with a single notification.
+     */
+    private final class ContentsLoader extends SwingWorker<Integer, Void> {
+
+        private final CharSequence contents; // null if the contents are read from reader
+        private final Reader reader;
+        private final AveTableModel contentsModel;
+        private final int columnCount;
+        private final ConcurrentLinkedQueue<List<AveTableRowEntry>> chunks;
+        private final AtomicBoolean appendScheduled;
+
+        ContentsLoader(final CharSequence contents, final Reader reader) {
+            this.contents = contents;
+            this.reader = reader;
+            // Fails before the worker is started, if the rows are defined by a row provider.
+            this.contentsModel = getContentsModel();
+            this.columnCount = this.contentsModel.getColumnCount();
+            this.chunks = new ConcurrentLinkedQueue<>();
+            this.appendScheduled = new AtomicBoolean();
+        }
+
+        @Override
+        protected Integer doInBackground() throws IOException {
+            final AvfTableParser.ChunkListener chunkListener = (rows, position) -> {
+                if (isCancelled()) {
+                    throw new CancellationException();
                 }
-                for (int j = 0; j < nbrOfCols; j++) {
-                    super.getTableModel().setValueAt(values[idx][j], idx, j);
+                this.chunks.add(rows);
+                // Only one append is scheduled at a time, it takes all chunks which have arrived until it runs.
+                if (this.appendScheduled.compareAndSet(false, true)) {
+                    SwingUtilities.invokeLater(this::appendRows);
                 }
-            }
-        } else {
-            // m = 1, simple vector
-            final String[] values = contents.substring(1, contents.length() - 1).trim().split("\\s*\\,\\s*");
-            for (int idx = 0; idx < values.length; idx++) {
-                if (idx >= super.getTableModel().getRowCount()) {
-                    addRow();
+                if (this.contents != null && this.contents.length() > 0) {
+                    setProgress((int) (position * 100 / this.contents.length()));
+                }
+            };
+            final int rowCount;
+            if (this.contents != null) {
+                rowCount = AvfTableParser.parseRows(this.contents, this.columnCount, LOAD_CHUNK_SIZE, chunkListener);
+            } else {
+                try (Reader r = this.reader) {
+                    rowCount = AvfTableParser.parseRows(r, this.columnCount, LOAD_CHUNK_SIZE, chunkListener);
                 }
-                super.getTableModel().setValueAt(values[idx], idx, 0);
+            }
+            setProgress(100);
+            return rowCount;
+        }
+
+        // Appends all chunks, which have arrived, on the EDT.
+        private void appendRows() {
+            this.appendScheduled.set(false);
+            if (contentsLoader == this) {
+                this.appendChunks();
+            } else {
+                this.chunks.clear();
+            }
+        }
+
+        private void appendChunks() {
+            List<AveTableRowEntry> rows = this.chunks.poll();
+            if (rows == null) {
+                return;
+            }
+            List<AveTableRowEntry> nextRows = this.chunks.poll();
+            if (nextRows != null) {
+                rows = new ArrayList<>(rows);
+                do {
+                    rows.addAll(nextRows);
+                } while ((nextRows = this.chunks.poll()) != null);
+            }
+            this.contentsModel.addRows(rows);
+        }
+
+        @Override
+        protected void done() {
+            if (contentsLoader != this) {
+                return;
+            }
+            contentsLoader = null;
+            if (isCancelled()) {
+                // keep the rows loaded so far
+                this.chunks.clear();
+                return;
+            }
+            try {
+                get();
+                // done() may run before the last scheduled append, so the remaining chunks are appended here.
+                this.appendChunks();
+            } catch (InterruptedException | ExecutionException e) {
+//                AveMsg.error(538, "Inconsistent number of columns in table definition -> not loaded!");
+                this.chunks.clear();
+                this.contentsModel.setRows(Collections.emptyList());
             }
         }
     }
@@ -1,9 +1,13 @@
 package de.joergwille.playground.shareddatamodel.swing;
 
+import de.joergwille.playground.shareddatamodel.swing.model.AbstractAveTableModel;
+import de.joergwille.playground.shareddatamodel.swing.model.AveRowProvider;
 import de.joergwille.playground.shareddatamodel.swing.model.AveSharedDataModel;
 import de.joergwille.playground.shareddatamodel.swing.model.AveTable;
 import de.joergwille.playground.shareddatamodel.swing.model.AveTableModel;
 import de.joergwille.playground.shareddatamodel.swing.model.AveTableRowEntry;
+import de.joergwille.playground.shareddatamodel.swing.model.AveTableSchema;
+import de.joergwille.playground.shareddatamodel.swing.model.AveVirtualTableModel;
 import java.awt.BorderLayout;
 import java.awt.Component;
 import java.awt.Container;
@@ -16,6 +20,7 @@ import java.awt.event.FocusEvent;
 import java.awt.event.FocusListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseWheelEvent;
+import java.util.Arrays;
 import javax.swing.BorderFactory;
 import javax.swing.Box;
 import javax.swing.JButton;
@@ -28,7 +33,6 @@ import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 import javax.swing.event.MouseInputAdapter;
 import javax.swing.event.MouseInputListener;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableModel;
 
 /**
@@ -49,12 +53,10 @@ public abstract class AveTablePanel extends JPanel {
     private static final int DEFAULT_COLUMN_HEADER_PADDING = 10;
 
     protected final AveTable table;
-    private final String[] columnTypes;
-    private final AveSharedDataModel<String>[] choiceModels;
-    private final String[] columnDefaults;
+    private final AveTableSchema schema;
     private final LayoutMode layoutMode;
     private final int minNbrOfRows;
-    private final TableModel tableModel;
+    private TableModel tableModel;
     private final JPanel tablePanel;
     private final JPanel buttonsPanel;
     private final JButton addRowButton;
@@ -273,9 +275,8 @@ public abstract class AveTablePanel extends JPanel {
         // Use absolute positioning or BorderLayout for LAST_COLUMN_FILL_WIDTH layout.
         super(LayoutMode.LAST_COLUMN_FILL_WIDTH.equals(layoutMode) ? new BorderLayout() : null);
 
-        this.columnTypes = columnTypes;
-        this.choiceModels = choiceModels;
-        this.columnDefaults = columnDefaults;
+        // Resolve the column types and default values once for all rows.
+        this.schema = new AveTableSchema(columnTypes, choiceModels, columnDefaults);
 
         // Set layout mode.
         this.layoutMode = layoutMode;
@@ -291,13 +292,13 @@ public abstract class AveTablePanel extends JPanel {
 
         if (!LayoutMode.DISPLAY.equals(this.layoutMode)) {
             // Create empty AveTableModel (rows are added dynamically).
-            this.tableModel = new AveTableModel(columnHeaders);
+            this.tableModel = new AveTableModel(columnHeaders, this.schema);
             // Table initialisation and configuration
             this.table = new AveTable(this.tableModel, minHeightInRows, DEFAULT_COLUMN_HEADER_PADDING,
                     DEFAULT_VIEWPORT_HEIGHT_MARGIN);
         } else {
             // For DISPLAY layout mode choose table model with non-editable cells (are only set explicitly).
-            tableModel = new DefaultTableModel(columnHeaders, 0) {
+            this.tableModel = new AveTableModel(columnHeaders, this.schema) {
                 @Override
                 public boolean isCellEditable(final int row, final int column) {
                     return false;
@@ -314,8 +315,8 @@ public abstract class AveTablePanel extends JPanel {
         this.focusListener = new ClearSelectionFocusAdapter(table);
 
         // Automatically create initNbrOfRows but at least minNbrOfRows rows.
-        for (int idx = 0; idx < initNbrOfRows; idx++) {
-            this.addRow();
+        if (initNbrOfRows > 0) {
+            ((AbstractAveTableModel) this.tableModel).addRows(Arrays.asList(this.schema.newRows(initNbrOfRows)));
         }
 
         // A Panel for table, add- and remove-button.
@@ -467,9 +468,9 @@ public abstract class AveTablePanel extends JPanel {
      * Adds a new row and initializes it with the zero-th value of the choice.
      */
     protected final void addRow() {
-        final AveTableRowEntry newRow = new AveTableRowEntry(this.columnTypes, this.choiceModels, this.columnDefaults);
-        // This cast is safe since in DISPLAY layout mode there is no addRowButton.
-        ((AveTableModel) this.tableModel).addRow(newRow);
+        final AveTableRowEntry newRow = this.schema.newRow();
+        // This cast is safe since the table model is always an AbstractAveTableModel.
+        ((AbstractAveTableModel) this.tableModel).addRow(newRow);
     }
 
     /**
@@ -481,11 +482,12 @@ public abstract class AveTablePanel extends JPanel {
         }
         final int[] selected = table.getSelectedRows();
         final int lastSelected = selected[selected.length - 1];
-        for (int idx = selected.length - 1; idx >= 0; idx--) {
-            if (this.tableModel.getRowCount() > minNbrOfRows) {
-                // This cast is safe since in DISPLAY layout mode there is no removeRowButton.
-                ((AveTableModel) this.tableModel).removeRow(selected[idx]);
-            }
+        // Preserve minNbrOfRows by keeping the first selected rows, if too many rows are selected.
+        final int removableCount = Math.max(0, Math.min(selected.length, this.tableModel.getRowCount() - minNbrOfRows));
+        if (removableCount > 0) {
+            // This cast is safe since the table model is always an AbstractAveTableModel.
+            ((AbstractAveTableModel) this.tableModel).removeRows(
+                    Arrays.copyOfRange(selected, selected.length - removableCount, selected.length));
         }
         // Select next to the last deleted row and scroll to the new selection. 
         if (this.tableModel.getRowCount() > 0) {
@@ -509,6 +511,47 @@ public abstract class AveTablePanel extends JPanel {
         this.removeListener();
     }
 
+    /**
+     * Returns the schema, which is used to create the rows of the table.
+     *
+     * @return The AveTableSchema.
+     */
+    public AveTableSchema getTableSchema() {
+        return this.schema;
+    }
+
+    /**
+     * Replaces the rows of the table by the rows of a row provider, e.g. for
+     * datasets too large to be held in memory. The rows are created by the
+     * provider only when they are displayed, see {@link AveVirtualTableModel}.
+     * Rows can not be added or removed anymore and in DISPLAY layout mode
+     * the cells can not be edited.
+     *
+     * @param rowProvider the provider of the rows, which must match the
+     * schema of this table.
+     * @return The AveVirtualTableModel which now is the model of the table.
+     */
+    public AveVirtualTableModel setRowProvider(final AveRowProvider rowProvider) {
+        final String[] columnHeaders = new String[this.tableModel.getColumnCount()];
+        for (int c = 0; c < columnHeaders.length; c++) {
+            columnHeaders[c] = this.tableModel.getColumnName(c);
+        }
+        final AveVirtualTableModel virtualTableModel = new AveVirtualTableModel(columnHeaders, this.schema, rowProvider);
+        virtualTableModel.setCellsEditable(!LayoutMode.DISPLAY.equals(this.layoutMode));
+
+        // clean up all rows of the previous model, which themselves can clean up all listeners.
+        if (this.tableModel instanceof AbstractAveTableModel) {
+            ((AbstractAveTableModel) this.tableModel).removeNotify();
+        }
+        this.tableModel = virtualTableModel;
+        this.table.setModel(virtualTableModel);
+        this.autoCreateNewRowAfterLastEdit = false;
+        this.table.setAutoCreateNewRowAfterLastEdit(null);
+        this.addRowButton.setEnabled(false);
+        this.removeRowButton.setEnabled(false);
+        return virtualTableModel;
+    }
+
     /**
      * Returns the table model of the AveTablePanel.
      *
@@ -537,8 +580,7 @@ public abstract class AveTablePanel extends JPanel {
      * last row finished.
      */
     public void setAutoCreateNewRowAfterLastEdit(final boolean isAutoCreate) {
-        final AveTableRowEntry rowPrototype
-                = new AveTableRowEntry(this.columnTypes, this.choiceModels, this.columnDefaults);
+        final AveTableRowEntry rowPrototype = this.schema.newRow();
         this.table.setAutoCreateNewRowAfterLastEdit(isAutoCreate ? rowPrototype : null);
         this.autoCreateNewRowAfterLastEdit = isAutoCreate;
     }
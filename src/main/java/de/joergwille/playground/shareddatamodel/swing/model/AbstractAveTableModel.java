@@ -0,0 +1,160 @@
+package de.joergwille.playground.shareddatamodel.swing.model;
+
+import java.util.Collection;
+import java.util.Collections;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * AbstractAveTableModel The common base of the table models used by
+ * {@link AveTable}. Rows are added as {@link AveTableRowEntry}, but each
+ * implementation is free to choose how it stores the data of its rows.
+ * Columns hold <code>String</code>, <code>Boolean</code> or
+ * {@link AveUpdatableSelection} values.
+ *
+ * @author willejoerg
+ */
+@SuppressWarnings("serial")
+public abstract class AbstractAveTableModel extends AbstractTableModel {
+
+    protected final String[] columnNames;
+
+    protected AbstractAveTableModel(final String[] columnNames) {
+        super();
+        this.columnNames = columnNames;
+    }
+
+    /**
+     * Adds a row to the end of the model.
+     * Notification of the row being added will be generated.
+     *
+     * @param tableEntry The non-null {@code AveTableRowEntry} object to be added.
+     */
+    public void addRow(final AveTableRowEntry tableEntry) {
+        this.insertRows(this.getRowCount(), Collections.singletonList(tableEntry));
+    }
+
+    /**
+     * Adds rows to the end of the model. A single notification of the rows
+     * being added will be generated.
+     *
+     * @param tableEntries The non-null {@code AveTableRowEntry} objects to be added.
+     */
+    public void addRows(final Collection<AveTableRowEntry> tableEntries) {
+        this.insertRows(this.getRowCount(), tableEntries);
+    }
+
+    /**
+     * Inserts rows at <code>row</code> in the model. The rows at and after
+     * <code>row</code> are shifted once. A single notification of the rows
+     * being inserted will be generated.
+     *
+     * @param row the row index of the first inserted row
+     * @param tableEntries The non-null {@code AveTableRowEntry} objects to be inserted.
+     * @exception ArrayIndexOutOfBoundsException if the row was invalid
+     */
+    public abstract void insertRows(int row, final Collection<AveTableRowEntry> tableEntries);
+
+    /**
+     * Removes the row at <code>row</code> from the model. Notification
+     * of the row being removed will be sent to all the listeners.
+     *
+     * @param row the row index of the row to be removed
+     * @exception ArrayIndexOutOfBoundsException if the row was invalid
+     */
+    public void removeRow(int row) {
+        this.removeRange(row, row);
+    }
+
+    /**
+     * Removes the rows from <code>fromRow</code> to <code>toRow</code>, both
+     * inclusive, with a single shift of the following rows. A single
+     * notification of the rows being removed will be sent to all the
+     * listeners.
+     *
+     * @param fromRow the row index of the lower end of the range
+     * @param toRow the row index of the upper end of the range
+     * @exception ArrayIndexOutOfBoundsException if a row was invalid
+     * @exception IllegalArgumentException if <code>fromRow &gt; toRow</code>
+     */
+    public abstract void removeRange(int fromRow, int toRow);
+
+    /**
+     * Removes the rows at the given indices from the model. Each contiguous
+     * run of indices is removed with a single shift and a single notification.
+     * The runs are removed from the highest to the lowest, so each
+     * notification refers to valid rows of the model at the time it is sent.
+     *
+     * @param sortedRows the row indices of the rows to be removed in ascending
+     * order
+     * @exception ArrayIndexOutOfBoundsException if a row was invalid
+     */
+    public void removeRows(final int[] sortedRows) {
+        int runEnd = sortedRows.length - 1;
+        while (runEnd >= 0) {
+            int runStart = runEnd;
+            while (runStart > 0 && sortedRows[runStart - 1] == sortedRows[runStart] - 1) {
+                runStart--;
+            }
+            this.removeRange(sortedRows[runStart], sortedRows[runEnd]);
+            runEnd = runStart - 1;
+        }
+    }
+
+    // Throws an ArrayIndexOutOfBoundsException or IllegalArgumentException for an invalid range of rows.
+    protected void checkRange(int fromRow, int toRow) {
+        if (fromRow > toRow) {
+            throw new IllegalArgumentException("fromRow must be <= toRow");
+        }
+        if (fromRow < 0 || toRow >= this.getRowCount()) {
+            throw new ArrayIndexOutOfBoundsException("Range [" + fromRow + ", " + toRow
+                    + "] is out of bounds for row count " + this.getRowCount());
+        }
+    }
+
+    /**
+     * Notifies this model that it is no longer being used. All rows are
+     * removed, so they can clean up their listeners. This method is called
+     * from the <code>AveTable</code> removeNotify().
+     */
+    public void removeNotify() {
+        if (this.getRowCount() > 0) {
+            this.removeRange(0, this.getRowCount() - 1);
+        }
+    }
+
+    // Throws an IllegalArgumentException if the number of columns of the entry does not match this model.
+    protected void checkColumnCount(final AveTableRowEntry tableEntry) {
+        if (this.columnNames.length != tableEntry.getRowData().length) {
+            throw new IllegalArgumentException("The number of colums (" + tableEntry.getRowData().length + ") in given 'TableRowEntry' " +
+                     "does not match with the number of columns (" + this.columnNames.length + ") in this 'TableModel'.");
+        }
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return this.columnNames[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int rowIndex, int columnIndex) {
+        return true;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return this.columnNames.length;
+    }
+
+    public String getStringValueAt(int rowIndex, int columnIndex) {
+        final Object valueAt = this.getValueAt(rowIndex, columnIndex);
+        String stringValueAt = null;
+        if (valueAt instanceof String) {
+            stringValueAt = (String) valueAt;
+        } else if (valueAt instanceof Boolean) {
+            stringValueAt = ((Boolean) valueAt) ? "true" : "false";
+        } else if (valueAt instanceof AveUpdatableSelection) {
+            stringValueAt = (String) ((AveUpdatableSelection) valueAt).getSelectedItem();
+        }
+        return stringValueAt;
+    }
+}
@@ -1,18 +1,28 @@
 package de.joergwille.playground.shareddatamodel.swing.model;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.Objects;
 import javax.swing.AbstractListModel;
 
 /**
  * List data model which can be iterated.<br>
- * Compared to the standard list model it uses a LinkedHashSet instead of a
- * Vector and is iterable, an enabled flag can be set to false to avoid unwanted
- * events while changing the datamodel.
+ * Compared to the standard list model it uses an indexed ordered set instead of
+ * a Vector and is iterable, an enabled flag can be set to false to avoid
+ * unwanted events while changing the datamodel.<br>
+ * The indexed ordered set consists of an <code>ArrayList</code> for the
+ * insertion order and a <code>HashMap</code> from element to index, which are
+ * kept in sync. Therefore positional access, index lookup and membership tests
+ * are O(1) while the elements stay unique.<br>
+ * Insertions and removals shift the backing array once. The indices of the
+ * shifted suffix are not updated immediately but marked as dirty by a
+ * watermark and renumbered lazily, when an index lookup requires it.
  *
  * @param <E> the type of the elements of this model
  *
@@ -22,7 +32,11 @@ import javax.swing.AbstractListModel;
 public class AbstractUniqueIterableDataModel<E> extends AbstractListModel<E> implements Iterable<E> {
 
     private static final int DEFAULT_INITIAL_CAPACITY = 16; // use a power of 2
-    private Set<E> objects;
+    private static final int INDICES_UP_TO_DATE = Integer.MAX_VALUE;
+    private final ArrayList<E> elements;
+    private final Map<E, Integer> indices;
+    private final List<E> unmodifiableElements;
+    private int dirtyFrom; // indices of elements at or after this position may be stale
     private boolean enabled;
     private int sizeBeforeDisabled;
 
@@ -44,9 +58,15 @@ public class AbstractUniqueIterableDataModel<E> extends AbstractListModel<E> imp
             int defaultInitialCapacity = Math.max(DEFAULT_INITIAL_CAPACITY, initial.size());
             initialCapacity = AbstractUniqueIterableDataModel.nearestPowerOfTwo(defaultInitialCapacity);
         }
-        this.objects = new LinkedHashSet<>(initialCapacity);
+        this.elements = new ArrayList<>(initialCapacity);
+        // HashMap resizes at a load factor of 0.75, so double the capacity to avoid rehashing.
+        this.indices = new HashMap<>(initialCapacity << 1);
+        this.unmodifiableElements = Collections.unmodifiableList(this.elements);
+        this.dirtyFrom = INDICES_UP_TO_DATE;
         if (initial != null) {
-            this.objects.addAll(initial);
+            for (E element : initial) {
+                this.append(element);
+            }
         }
         this.enabled = true;
     }
@@ -55,19 +75,82 @@ public class AbstractUniqueIterableDataModel<E> extends AbstractListModel<E> imp
         return (int) Math.pow(2, (Integer.SIZE - Integer.numberOfLeadingZeros(value - 1)));
     }
 
+    // Appends the element to the end of the backing list, if not yet contained.
+    private boolean append(E element) {
+        if (this.indices.containsKey(element)) {
+            return false;
+        }
+        this.indices.put(element, this.elements.size());
+        this.elements.add(element);
+        this.elementAdded(element);
+        return true;
+    }
+
+    // Inserts the element with one shift of the backing array and marks the following indices as dirty.
+    private void insertAt(E element, int index) {
+        this.elements.add(index, element);
+        this.indices.put(element, index);
+        this.dirtyFrom = Math.min(this.dirtyFrom, index);
+        this.elementAdded(element);
+    }
+
+    // Removes the element with one shift of the backing array and marks the following indices as dirty.
+    private E removeAt(int index) {
+        final E element = this.elements.remove(index);
+        this.indices.remove(element);
+        this.dirtyFrom = Math.min(this.dirtyFrom, index);
+        this.elementRemoved(element);
+        return element;
+    }
+
+    // Updates the element to index mapping for the dirty suffix of the backing list.
+    private void renumber() {
+        for (int i = this.dirtyFrom; i < this.elements.size(); i++) {
+            this.indices.put(this.elements.get(i), i);
+        }
+        this.dirtyFrom = INDICES_UP_TO_DATE;
+    }
+
+    /**
+     * Is called after an element has been added to this list, before any
+     * event is fired. Subclasses can override it to maintain derived state
+     * incrementally. It might be called while the list is being constructed.
+     *
+     * @param element the added element
+     */
+    protected void elementAdded(E element) {
+    }
+
+    /**
+     * Is called after an element has been removed from this list, before any
+     * event is fired. Subclasses can override it to maintain derived state
+     * incrementally.
+     *
+     * @param element the removed element
+     */
+    protected void elementRemoved(E element) {
+    }
+
+    /**
+     * Is called after all elements have been removed by {@link #clear()},
+     * instead of calling {@link #elementRemoved(Object)} for each element.
+     */
+    protected void elementsCleared() {
+    }
+
     private int indexOf(E element) {
-        int index = -1;
-        Iterator<E> iterator = this.objects.iterator();
-        int currentIndex = 0;
-        while (iterator.hasNext()) {
-            final E nextElement = iterator.next();
-            if (nextElement.equals(element)) {
-                index = currentIndex;
-                break;
-            }
-            currentIndex++;
+        final Integer index = this.indices.get(element);
+        if (index == null) {
+            return -1;
         }
-        return index;
+        // A stale index is never below the watermark. Above the watermark a
+        // stored index is still valid, if it points to the element itself.
+        if (index < this.dirtyFrom
+                || (index < this.elements.size() && Objects.equals(this.elements.get(index), element))) {
+            return index;
+        }
+        this.renumber();
+        return this.indices.get(element);
     }
 
     /**
@@ -84,17 +167,7 @@ public class AbstractUniqueIterableDataModel<E> extends AbstractListModel<E> imp
      * @see List#get(int)
      */
     private E elementAt(int index) {
-        E element = null;
-        Iterator<E> iterator = this.objects.iterator();
-        int currentIndex = 0;
-        while (iterator.hasNext()) {
-            element = iterator.next();
-            if (currentIndex == index) {
-                break;
-            }
-            currentIndex++;
-        }
-        return element;
+        return this.elements.get(index);
     }
 
     /**
@@ -104,7 +177,7 @@ public class AbstractUniqueIterableDataModel<E> extends AbstractListModel<E> imp
      * @see List#size()
      */
     public int size() {
-        return this.objects.size();
+        return this.elements.size();
     }
 
     /**
@@ -161,7 +234,7 @@ public class AbstractUniqueIterableDataModel<E> extends AbstractListModel<E> imp
      * @see List#isEmpty()
      */
     public boolean isEmpty() {
-        return this.objects.isEmpty();
+        return this.elements.isEmpty();
     }
 
     /**
@@ -172,7 +245,7 @@ public class AbstractUniqueIterableDataModel<E> extends AbstractListModel<E> imp
      */
     @Override
     public Iterator<E> iterator() {
-        return this.objects.iterator();
+        return this.unmodifiableElements.iterator();
     }
 
     /**
@@ -182,7 +255,7 @@ public class AbstractUniqueIterableDataModel<E> extends AbstractListModel<E> imp
      * @see List#iterator()
      */
     public Iterator<E> elements() {
-        return this.objects.iterator();
+        return this.unmodifiableElements.iterator();
     }
 
     /**
@@ -194,7 +267,7 @@ public class AbstractUniqueIterableDataModel<E> extends AbstractListModel<E> imp
      * @see List#contains(Object)
      */
     public boolean contains(Object elem) {
-        return this.objects.contains(elem);
+        return this.indices.containsKey(elem);
     }
 
     /**
@@ -215,9 +288,12 @@ public class AbstractUniqueIterableDataModel<E> extends AbstractListModel<E> imp
      * this call returns (unless it throws an exception).
      */
     public void clear() {
-        int index = objects.size() - 1;
+        int index = elements.size() - 1;
         if (index >= 0) {
-            objects.clear();
+            elements.clear();
+            indices.clear();
+            dirtyFrom = INDICES_UP_TO_DATE;
+            elementsCleared();
             int remaining = size();
             fireIntervalRemoved(this, remaining, remaining + index);
         }
@@ -231,7 +307,7 @@ public class AbstractUniqueIterableDataModel<E> extends AbstractListModel<E> imp
      */
     public boolean add(E element) {
         int index = size();
-        boolean added = objects.add(element);
+        boolean added = this.append(element);
         if (added) {
             fireIntervalAdded(this, index, index);
         }
@@ -239,46 +315,73 @@ public class AbstractUniqueIterableDataModel<E> extends AbstractListModel<E> imp
     }
 
     public boolean addAll(Collection<? extends E> items) {
-        int fromIndex = size();
-        boolean changed = objects.addAll(items);
-        int toIndex = size() - 1;
-        if (changed) {
-            fireIntervalAdded(this, fromIndex, toIndex);
+        return this.addAll(size(), items);
+    }
+
+    /**
+     * Inserts all elements of the given collection, which are not yet
+     * contained in this list, at the specified position. The elements are
+     * inserted with a single shift of the backing list and a single
+     * <code>intervalAdded</code> event is fired.
+     * <p>
+     * Nothing will happen, if the index is out of range
+     * (<code>index &lt; 0 || index &gt; size()</code>).
+     *
+     * @param index index at which the first element is to be inserted
+     * @param items the elements to be inserted
+     * @return <code>true</code> if this list changed as a result of the call
+     */
+    public boolean addAll(int index, Collection<? extends E> items) {
+        if (index < 0 || index > size()) {
+            return false;
+        }
+        final List<E> newElements = this.uniqueNewElements(items);
+        if (newElements.isEmpty()) {
+            return false;
+        }
+        final boolean isAppend = index == size();
+        this.elements.addAll(index, newElements);
+        for (int i = 0; i < newElements.size(); i++) {
+            this.indices.put(newElements.get(i), index + i);
+            this.elementAdded(newElements.get(i));
+        }
+        if (!isAppend) {
+            this.dirtyFrom = Math.min(this.dirtyFrom, index);
+        }
+        fireIntervalAdded(this, index, index + newElements.size() - 1);
+        return true;
+    }
+
+    // Returns the elements of items in their order without duplicates and without elements already contained.
+    private List<E> uniqueNewElements(Collection<? extends E> items) {
+        final List<E> newElements = new ArrayList<>(items.size());
+        final Map<E, Boolean> seen = new HashMap<>(items.size() << 1);
+        for (E element : items) {
+            if (!this.indices.containsKey(element) && seen.put(element, Boolean.TRUE) == null) {
+                newElements.add(element);
+            }
         }
-        return changed;
+        return newElements;
     }
 
     /**
      * Inserts the specified element at the specified position in this list.
      * <p>
-     * Throws an <code>ArrayIndexOutOfBoundsException</code> if the index is out
-     * of range (<code>index &lt; 0 || index &gt; size()</code>).
+     * Nothing will happen, if the index is out of range
+     * (<code>index &lt; 0 || index &gt; size()</code>) or if the element is
+     * already contained in this list.
      *
      * @param index index at which the specified element is to be inserted
      * @param element element to be inserted
      */
     public void insertElementAt(E element, int index) {
-        if (index < 0 || index >= size()) {
+        if (index < 0 || index > size()) {
             return;
         }
-        if (this.objects.contains(element)) {
+        if (this.indices.containsKey(element)) {
             return;
         }
-        int initialCapacity = AbstractUniqueIterableDataModel.nearestPowerOfTwo(size() + 1);
-        final Set<E> aNewSet = new LinkedHashSet<>(initialCapacity);
-
-        // First copy all existing items before the new element, then add the new element
-        // and then complete with the rest of the existing elements.
-        Iterator<E> iterator = this.objects.iterator();
-        int currentIndex = 0;
-        while (iterator.hasNext()) {
-            aNewSet.add(iterator.next());
-            if (currentIndex == index) {
-                aNewSet.add(element);
-            }
-            currentIndex++;
-        }
-        this.objects = aNewSet;
+        this.insertAt(element, index);
         fireIntervalAdded(this, index, index);
     }
 
@@ -295,12 +398,9 @@ public class AbstractUniqueIterableDataModel<E> extends AbstractListModel<E> imp
         if (index < 0) {
             return false;
         }
-        int totalIndex = index;
-        boolean rv = objects.remove(obj);
-        if (index >= 0) {
-            fireIntervalRemoved(this, totalIndex, totalIndex);
-        }
-        return rv;
+        this.removeAt(index);
+        fireIntervalRemoved(this, index, index);
+        return true;
     }
 
     /**
@@ -329,8 +429,232 @@ public class AbstractUniqueIterableDataModel<E> extends AbstractListModel<E> imp
         if (index < 0 || index >= size()) {
             return;
         }
-        E elem = this.elementAt(index);
-        remove(elem);
+        this.removeAt(index);
+        fireIntervalRemoved(this, index, index);
+    }
+
+    /**
+     * Removes all elements of this list which are contained in the given
+     * collection. The backing list is compacted in a single pass and one
+     * <code>intervalRemoved</code> event is fired for each contiguous run of
+     * removed elements.
+     *
+     * @param items the elements to be removed
+     * @return <code>true</code> if this list changed as a result of the call
+     */
+    public boolean removeAll(Collection<?> items) {
+        final BitSet removed = new BitSet(size());
+        for (Object item : items) {
+            final int index = this.getIndexOf(item);
+            if (index >= 0) {
+                removed.set(index);
+            }
+        }
+        return this.removePositions(removed);
+    }
+
+    /**
+     * Retains only the elements of this list which are contained in the given
+     * collection. The backing list is compacted in a single pass and one
+     * <code>intervalRemoved</code> event is fired for each contiguous run of
+     * removed elements.
+     *
+     * @param items the elements to be retained
+     * @return <code>true</code> if this list changed as a result of the call
+     */
+    public boolean retainAll(Collection<?> items) {
+        final BitSet removed = new BitSet(size());
+        removed.set(0, size());
+        for (Object item : items) {
+            final int index = this.getIndexOf(item);
+            if (index >= 0) {
+                removed.clear(index);
+            }
+        }
+        return this.removePositions(removed);
+    }
+
+    /**
+     * Deletes the elements from index <code>fromIndex</code> to index
+     * <code>toIndex</code>, both inclusive, with a single shift of the backing
+     * list and fires a single <code>intervalRemoved</code> event.
+     *
+     * @param fromIndex the index of the lower end of the range
+     * @param toIndex the index of the upper end of the range
+     * @exception ArrayIndexOutOfBoundsException if an index was invalid
+     * @exception IllegalArgumentException if <code>fromIndex &gt; toIndex</code>
+     */
+    public void removeRange(int fromIndex, int toIndex) {
+        this.checkRange(fromIndex, toIndex);
+        final List<E> range = this.elements.subList(fromIndex, toIndex + 1);
+        for (E element : range) {
+            this.indices.remove(element);
+            this.elementRemoved(element);
+        }
+        range.clear();
+        this.dirtyFrom = Math.min(this.dirtyFrom, fromIndex);
+        fireIntervalRemoved(this, fromIndex, toIndex);
+    }
+
+    /**
+     * Replaces the elements from index <code>fromIndex</code> to index
+     * <code>toIndex</code>, both inclusive, with the elements of the given
+     * collection. Elements which are contained in this list outside of the
+     * range or which occur more than once in the collection are skipped.<br>
+     * A <code>contentsChanged</code> event is fired for the overlapping part
+     * and an <code>intervalAdded</code> or <code>intervalRemoved</code> event
+     * for the part by which the range grows or shrinks.
+     *
+     * @param fromIndex the index of the lower end of the range
+     * @param toIndex the index of the upper end of the range
+     * @param items the elements to replace the range with
+     * @exception ArrayIndexOutOfBoundsException if an index was invalid
+     * @exception IllegalArgumentException if <code>fromIndex &gt; toIndex</code>
+     */
+    public void replaceRange(int fromIndex, int toIndex, Collection<? extends E> items) {
+        this.checkRange(fromIndex, toIndex);
+        for (E element : this.elements.subList(fromIndex, toIndex + 1)) {
+            this.indices.remove(element);
+            this.elementRemoved(element);
+        }
+        final List<E> newElements = this.uniqueNewElements(items);
+        final int oldCount = toIndex - fromIndex + 1;
+        final int newCount = newElements.size();
+        final int commonCount = Math.min(oldCount, newCount);
+
+        for (int i = 0; i < commonCount; i++) {
+            this.elements.set(fromIndex + i, newElements.get(i));
+        }
+        if (newCount > oldCount) {
+            this.elements.addAll(fromIndex + oldCount, newElements.subList(oldCount, newCount));
+        } else if (oldCount > newCount) {
+            this.elements.subList(fromIndex + newCount, toIndex + 1).clear();
+        }
+        for (int i = 0; i < newCount; i++) {
+            this.indices.put(newElements.get(i), fromIndex + i);
+            this.elementAdded(newElements.get(i));
+        }
+        if (oldCount != newCount) {
+            this.dirtyFrom = Math.min(this.dirtyFrom, fromIndex + commonCount);
+        }
+
+        if (commonCount > 0) {
+            fireContentsChanged(this, fromIndex, fromIndex + commonCount - 1);
+        }
+        if (newCount > oldCount) {
+            fireIntervalAdded(this, fromIndex + oldCount, fromIndex + newCount - 1);
+        } else if (oldCount > newCount) {
+            fireIntervalRemoved(this, fromIndex + newCount, toIndex);
+        }
+    }
+
+    /**
+     * Replaces all elements of this list with the given items, of which
+     * duplicates are skipped. Instead of removing and adding all elements, the
+     * minimal edit script between the current and the new elements is applied
+     * in place and events are fired only for the changed ranges: a
+     * <code>contentsChanged</code> event for replaced elements and an
+     * <code>intervalAdded</code> or <code>intervalRemoved</code> event where a
+     * changed range grows or shrinks.
+     *
+     * @param items the new elements of this list
+     * @return <code>true</code> if this list changed as a result of the call
+     */
+    public boolean replaceAllElements(Collection<? extends E> items) {
+        final List<E> newElements = new ArrayList<>(items.size());
+        final Map<E, Boolean> seen = new HashMap<>(items.size() << 1);
+        for (E element : items) {
+            if (seen.put(element, Boolean.TRUE) == null) {
+                newElements.add(element);
+            }
+        }
+        final List<ListDiff.Hunk> hunks = ListDiff.compute(this.elements, newElements);
+        if (hunks.isEmpty()) {
+            return false;
+        }
+
+        // Remove all replaced elements from the index first, since an element may move from one hunk to another.
+        for (ListDiff.Hunk hunk : hunks) {
+            for (int i = hunk.oldFrom; i < hunk.oldFrom + hunk.oldCount; i++) {
+                this.indices.remove(this.elements.get(i));
+                this.elementRemoved(this.elements.get(i));
+            }
+        }
+        // Apply hunks in ascending order. All elements before a hunk already are at their new positions.
+        for (ListDiff.Hunk hunk : hunks) {
+            final int position = hunk.newFrom;
+            final int commonCount = Math.min(hunk.oldCount, hunk.newCount);
+            for (int i = 0; i < commonCount; i++) {
+                this.elements.set(position + i, newElements.get(position + i));
+            }
+            if (hunk.newCount > hunk.oldCount) {
+                this.elements.addAll(position + hunk.oldCount,
+                        newElements.subList(position + hunk.oldCount, position + hunk.newCount));
+            } else if (hunk.oldCount > hunk.newCount) {
+                this.elements.subList(position + hunk.newCount, position + hunk.oldCount).clear();
+            }
+            for (int i = position; i < position + hunk.newCount; i++) {
+                this.indices.put(newElements.get(i), i);
+                this.elementAdded(newElements.get(i));
+            }
+            if (hunk.oldCount != hunk.newCount) {
+                this.dirtyFrom = Math.min(this.dirtyFrom, position + commonCount);
+            }
+        }
+
+        for (ListDiff.Hunk hunk : hunks) {
+            final int position = hunk.newFrom;
+            final int commonCount = Math.min(hunk.oldCount, hunk.newCount);
+            if (commonCount > 0) {
+                fireContentsChanged(this, position, position + commonCount - 1);
+            }
+            if (hunk.newCount > hunk.oldCount) {
+                fireIntervalAdded(this, position + hunk.oldCount, position + hunk.newCount - 1);
+            } else if (hunk.oldCount > hunk.newCount) {
+                fireIntervalRemoved(this, position + hunk.newCount, position + hunk.oldCount - 1);
+            }
+        }
+        return true;
+    }
+
+    private void checkRange(int fromIndex, int toIndex) {
+        if (fromIndex > toIndex) {
+            throw new IllegalArgumentException("fromIndex must be <= toIndex");
+        }
+        if (fromIndex < 0 || toIndex >= size()) {
+            throw new ArrayIndexOutOfBoundsException("Range [" + fromIndex + ", " + toIndex
+                    + "] is out of bounds for size " + size());
+        }
+    }
+
+    // Compacts the backing list in a single pass by dropping all positions set in removed.
+    // Events are fired from the highest to the lowest run, so each run refers to valid indices.
+    private boolean removePositions(BitSet removed) {
+        final int firstRemoved = removed.nextSetBit(0);
+        if (firstRemoved < 0) {
+            return false;
+        }
+        final int size = size();
+        int target = firstRemoved;
+        for (int source = firstRemoved; source < size; source++) {
+            final E element = this.elements.get(source);
+            if (removed.get(source)) {
+                this.indices.remove(element);
+                this.elementRemoved(element);
+            } else {
+                this.elements.set(target++, element);
+            }
+        }
+        this.elements.subList(target, size).clear();
+        this.dirtyFrom = Math.min(this.dirtyFrom, firstRemoved);
+
+        int runEnd = removed.previousSetBit(size - 1);
+        while (runEnd >= 0) {
+            final int runStart = removed.previousClearBit(runEnd) + 1;
+            fireIntervalRemoved(this, runStart, runEnd);
+            runEnd = removed.previousSetBit(runStart - 1);
+        }
+        return true;
     }
 
     /**
@@ -340,7 +664,7 @@ public class AbstractUniqueIterableDataModel<E> extends AbstractListModel<E> imp
      */
     @Override
     public String toString() {
-        return this.objects.toString();
+        return this.elements.toString();
     }
 
     /**
@@ -351,7 +675,7 @@ public class AbstractUniqueIterableDataModel<E> extends AbstractListModel<E> imp
      * <code>Set</code>
      */
     public List<E> toList() {
-        return new ArrayList<>(this.objects);
+        return new ArrayList<>(this.elements);
     }
 
     /**
@@ -361,7 +685,7 @@ public class AbstractUniqueIterableDataModel<E> extends AbstractListModel<E> imp
      * @return an array containing the elements of the <code>Set</code>
      */
     public Object[] toArray() {
-        return toList().toArray();
+        return this.elements.toArray();
     }
 
     @Override
@@ -3,7 +3,11 @@ package de.joergwille.playground.shareddatamodel.swing.model;
 import java.awt.Component;
 import java.awt.event.ActionEvent;
 import java.awt.event.MouseEvent;
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
 import java.util.EventObject;
+import java.util.Map;
+import java.util.WeakHashMap;
 import javax.swing.AbstractCellEditor;
 import javax.swing.CellEditor;
 import javax.swing.JComboBox;
@@ -18,6 +22,10 @@ import javax.swing.table.TableCellEditor;
  * used to store the selected item of a <code>JComboBox</code>.
  * <code>AveChoiceElementCellEditor</code> uses a singleton pattern since a
  * single instance can be reused for multiple <code>JComboBox</code> instances.
+ * <br>
+ * For each {@link AveSharedDataModel} one {@link AveSharedComboBoxModel} is
+ * created and cached, so starting to edit a cell only swaps the selection of
+ * the cached model instead of creating and registering a new model.
  *
  * @author willejoerg
  */
@@ -31,9 +39,16 @@ public final class AveChoiceElementCellEditor extends AbstractCellEditor impleme
 
     AveUpdatableSelection<String> updatableSelection;
     final JComboBox<String> comboBox;
+    // AveSharedDataModel does not override equals, so the keys are compared by identity. The cached model
+    // references its shared model, so it must only be referenced weakly, else the key would never be collected.
+    // The shared model holds the cached model in its SelectionRegistry, so the cached model lives as long as the
+    // shared model, unless the shared model is in weak listener mode, then it is created again when needed.
+    private final Map<AveSharedDataModel<String>, Reference<AveSharedComboBoxModel<String>>> comboBoxModels;
+    private boolean preparingEditor;
 
     private AveChoiceElementCellEditor() {
         super();
+        this.comboBoxModels = new WeakHashMap<>();
         this.comboBox = new JComboBox<>();
         this.comboBox.setOpaque(true);
         this.comboBox.putClientProperty("JComboBox.isTableCellEditor", Boolean.TRUE);
@@ -51,6 +66,10 @@ public final class AveChoiceElementCellEditor extends AbstractCellEditor impleme
     }
 
     private void comboBoxActionPerformed(ActionEvent event) {
+        // Selecting the item of the cell which starts being edited is no user action.
+        if (this.preparingEditor) {
+            return;
+        }
         JComboBox<?> aComboBox = (JComboBox) event.getSource();
         this.updatableSelection.setSelectedItem(aComboBox.getSelectedItem());
         super.stopCellEditing();
@@ -79,13 +98,35 @@ public final class AveChoiceElementCellEditor extends AbstractCellEditor impleme
         }
 
         this.updatableSelection = (AveUpdatableSelection) value;
-        this.comboBox.setModel(new AveSharedComboBoxModel<>(this.updatableSelection.sharedModel));
-        this.comboBox.setPrototypeDisplayValue(this.updatableSelection.getPrototypeDisplayValue());
-        this.comboBox.setSelectedItem(this.updatableSelection.getSelectedItem());
+        final AveSharedComboBoxModel<String> comboBoxModel = this.comboBoxModelFor(this.updatableSelection.sharedModel);
+        this.preparingEditor = true;
+        try {
+            if (this.comboBox.getModel() != comboBoxModel) {
+                this.comboBox.setModel(comboBoxModel);
+            }
+            this.comboBox.setPrototypeDisplayValue(this.updatableSelection.getPrototypeDisplayValue());
+            // Select directly in the model, which avoids the linear search of JComboBox.setSelectedItem. The
+            // selection is forced, so an empty or stale selection of the cell is shown as no selection and does
+            // not leave the item of the previously edited cell selected.
+            comboBoxModel.forceSelectedItem(this.updatableSelection.getSelectedItem());
+        } finally {
+            this.preparingEditor = false;
+        }
 
         return this.comboBox;
     }
 
+    // Returns the cached AveSharedComboBoxModel for the shared model or creates it.
+    private AveSharedComboBoxModel<String> comboBoxModelFor(AveSharedDataModel<String> sharedModel) {
+        final Reference<AveSharedComboBoxModel<String>> reference = this.comboBoxModels.get(sharedModel);
+        AveSharedComboBoxModel<String> comboBoxModel = reference != null ? reference.get() : null;
+        if (comboBoxModel == null) {
+            comboBoxModel = new AveSharedComboBoxModel<>(sharedModel);
+            this.comboBoxModels.put(sharedModel, new WeakReference<>(comboBoxModel));
+        }
+        return comboBoxModel;
+    }
+
     private final class PopupMenuCanceledListener implements PopupMenuListener {
 
         final CellEditor cellEditor;
@@ -1,11 +1,11 @@
 package de.joergwille.playground.shareddatamodel.swing.model;
 
 import java.awt.Component;
-import javax.swing.DefaultComboBoxModel;
+import javax.swing.AbstractListModel;
+import javax.swing.ComboBoxModel;
 import javax.swing.JComboBox;
 import javax.swing.JTable;
 import javax.swing.table.TableCellRenderer;
-import javax.swing.table.TableColumn;
 
 /**
  * AveChoiceElementCellRenderer A {@link TableCellRenderer} for
@@ -13,6 +13,13 @@ import javax.swing.table.TableColumn;
  * used to store the selected item of a <code>JComboBox</code>.
  * <code>AveChoiceElementCellRenderer</code> uses a singleton pattern since a
  * single instance can be reused for multiple <code>JComboBox</code> instances.
+ * <br>
+ * Only the selected item is painted, therefore the renderer uses one reusable
+ * model which holds just the selected item of the cell being rendered. The
+ * items of the shared model are never copied or searched while painting.
+ * The PrototypeDisplayValue, which only affects the preferred size, is not
+ * changed while painting either, it is set by the <code>ColumnWidthManager</code>
+ * of {@link AveTable} when it measures a column.
  *
  * @author willejoerg
  */
@@ -24,9 +31,48 @@ public final class AveChoiceElementCellRenderer extends JComboBox<String> implem
         static final AveChoiceElementCellRenderer INSTANCE = new AveChoiceElementCellRenderer();
     }
 
+    private final SelectedItemModel selectedItemModel;
+
+    /**
+     * A <code>ComboBoxModel</code> which only contains the selected item. The
+     * item is swapped without firing events, since the renderer is only
+     * painted and the <code>JComboBox</code> reads the selected item from its
+     * model when painting.
+     */
+    private static final class SelectedItemModel extends AbstractListModel<String> implements ComboBoxModel<String> {
+
+        private String selectedItem;
+
+        void setItem(String item) {
+            this.selectedItem = item;
+        }
+
+        @Override
+        public void setSelectedItem(Object anItem) {
+            this.selectedItem = (String) anItem;
+        }
+
+        @Override
+        public Object getSelectedItem() {
+            return this.selectedItem;
+        }
+
+        @Override
+        public int getSize() {
+            return this.selectedItem != null ? 1 : 0;
+        }
+
+        @Override
+        public String getElementAt(int index) {
+            return index == 0 ? this.selectedItem : null;
+        }
+    }
+
     private AveChoiceElementCellRenderer() {
         super();
         super.setMaximumRowCount(30);
+        this.selectedItemModel = new SelectedItemModel();
+        super.setModel(this.selectedItemModel);
         setOpaque(true);
     }
 
@@ -40,36 +86,11 @@ public final class AveChoiceElementCellRenderer extends JComboBox<String> implem
     }
 
     @Override
-    @SuppressWarnings({"rawtypes", "unchecked"})
     public Component getTableCellRendererComponent(JTable table, Object value,
             boolean isSelected, boolean hasFocus, int row, int column) {
-        AveUpdatableSelection updatableSelection = (AveUpdatableSelection) value;
-        super.setModel(new DefaultComboBoxModel(updatableSelection.toArray()));
-
-        // get PrototypeDisplayValue from AveUpdatableSelection and use it to update column width.
-        this.setPrototypeDisplayValue((String) updatableSelection.getPrototypeDisplayValue());
-
-        // Automatically resize column width or use manually size.
-        // If once manual resized then do not automatically layout
-        // until updatableSelection was upated.
-        final TableColumn tableColumn = table.getColumnModel().getColumn(column);
-        final TableColumn resizingColumn = table.getTableHeader().getResizingColumn();
-        int prefColumnWidth = Math.max(tableColumn.getMinWidth(), super.getPreferredSize().width);
-        // Check if column is manually being resized.
-        if (resizingColumn != null && tableColumn.equals(resizingColumn)) {
-            tableColumn.setIdentifier("ColumnIsManuallyResized");
-        }
-        // Check if updatableSelection has been updated.
-        if (updatableSelection.isSelectionUpdated()) {
-            tableColumn.setIdentifier(tableColumn.getHeaderValue());
-        }
-        // Automatically resize column.
-        if (!"ColumnIsManuallyResized".equals(tableColumn.getIdentifier())) {
-            tableColumn.setPreferredWidth(prefColumnWidth);
-            tableColumn.setWidth(tableColumn.getPreferredWidth());
-        }
-
-        this.setSelectedItem(updatableSelection.getSelectedItem());
+        final AveUpdatableSelection<?> updatableSelection = (AveUpdatableSelection<?>) value;
+        final String selectedItem = (String) updatableSelection.getSelectedItem();
+        this.selectedItemModel.setItem(selectedItem);
 
         this.setForeground((isSelected && hasFocus) ? table.getSelectionForeground() : table.getForeground());
         this.setBackground((isSelected && hasFocus) ? table.getSelectionBackground() : table.getBackground());
@@ -77,4 +98,18 @@ public final class AveChoiceElementCellRenderer extends JComboBox<String> implem
         return this;
     }
 
+    /**
+     * Returns the preferred width of a cell showing any item of a shared
+     * model. The PrototypeDisplayValue is set to the prototype of the shared
+     * model, which does not depend on the row, and only changes if the
+     * prototype changes.
+     *
+     * @param sharedModel the shared model of the column.
+     * @return the preferred width.
+     */
+    int getPreferredWidth(final AveSharedDataModel<?> sharedModel) {
+        this.setPrototypeDisplayValue((String) sharedModel.getRenderingPrototype());
+        return this.getPreferredSize().width;
+    }
+
 }
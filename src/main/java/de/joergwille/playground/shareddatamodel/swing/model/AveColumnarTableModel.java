@@ -0,0 +1,476 @@
+package de.joergwille.playground.shareddatamodel.swing.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * AveColumnarTableModel A table model which stores its data column by column
+ * instead of one {@link AveTableRowEntry} per row. It has the same contract
+ * as {@link AveTableModel}, but needs only a few bytes per cell, so tables
+ * with a million rows fit into a moderate heap.<br>
+ * <ul>
+ * <li><code>String</code> columns are stored in an array of references or,
+ * if dictionary encoding is enabled, as an <code>int</code> array of codes
+ * into a dictionary of the distinct strings of the column.</li>
+ * <li><code>Boolean</code> columns are stored in a <code>BitSet</code>.</li>
+ * <li>Choice columns are stored as an <code>int</code> array of codes into a
+ * dictionary of the selected items of the {@link AveSharedDataModel}. When
+ * the shared model is updated, only the dictionary is remapped, not the
+ * rows.</li>
+ * </ul>
+ * Rows are not stored as objects, therefore {@link #getValueAt(int, int)}
+ * returns a new {@link AveUpdatableSelection} for a choice cell, which is not
+ * registered at the shared model. It is a copy of the cell: it is not updated
+ * by the shared model and changing it does not change the cell, which is done
+ * by {@link #setValueAt(Object, int, int)}. Added {@link AveTableRowEntry} are
+ * copied into the columns and then released.
+ *
+ * @author willejoerg
+ */
+@SuppressWarnings("serial")
+public class AveColumnarTableModel extends AbstractAveTableModel {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 16;
+    private final Class<?>[] columnClasses;
+    private final Column[] columns;
+    private int rowCount;
+    private int capacity;
+
+    /**
+     * Creates an empty <code>AveColumnarTableModel</code>. String columns are
+     * not dictionary encoded.
+     *
+     * @param columnNames the names of the columns
+     * @param columnTypes An array of <code>String</code> to define the sequence and type of each column in a row.
+     *                    Each entry should be either <i>string</i>, <i>boolean</i> or <i>choice</i>.
+     * @param choiceModels An array of <code>AveSharedDataModel</code> for the choice columns. The sequence and
+     *                     number of <i>choiceModels</i> must match the occurrences of <i>choice</i> entries in
+     *                     <i>columnTypes</i>.
+     */
+    public AveColumnarTableModel(final String[] columnNames, final String[] columnTypes,
+            final AveSharedDataModel<String>[] choiceModels) {
+        this(columnNames, columnTypes, choiceModels, false);
+    }
+
+    /**
+     * Creates an empty <code>AveColumnarTableModel</code>.
+     *
+     * @param columnNames the names of the columns
+     * @param columnTypes An array of <code>String</code> to define the sequence and type of each column in a row.
+     *                    Each entry should be either <i>string</i>, <i>boolean</i> or <i>choice</i>.
+     * @param choiceModels An array of <code>AveSharedDataModel</code> for the choice columns. The sequence and
+     *                     number of <i>choiceModels</i> must match the occurrences of <i>choice</i> entries in
+     *                     <i>columnTypes</i>.
+     * @param dictionaryEncodeStrings if <i>true</i> each distinct string of a column is stored only once, which
+     *                                saves memory for columns with many repeated values.
+     */
+    public AveColumnarTableModel(final String[] columnNames, final String[] columnTypes,
+            final AveSharedDataModel<String>[] choiceModels, boolean dictionaryEncodeStrings) {
+        this(columnNames, new AveTableSchema(columnTypes, choiceModels, null), dictionaryEncodeStrings);
+    }
+
+    /**
+     * Creates an empty <code>AveColumnarTableModel</code>.
+     *
+     * @param columnNames the names of the columns
+     * @param schema the schema, which defines the type of each column and the shared models of the choice columns.
+     * @param dictionaryEncodeStrings if <i>true</i> each distinct string of a column is stored only once, which
+     *                                saves memory for columns with many repeated values.
+     */
+    public AveColumnarTableModel(final String[] columnNames, final AveTableSchema schema, boolean dictionaryEncodeStrings) {
+        super(columnNames);
+        if (schema.getColumnCount() != columnNames.length) {
+            throw new IllegalArgumentException("The number of columns in 'columnNames' (" + columnNames.length + ") " +
+                    "does not match the number of columns in 'schema' (" + schema.getColumnCount() + ").");
+        }
+        this.columnClasses = new Class<?>[schema.getColumnCount()];
+        this.capacity = DEFAULT_INITIAL_CAPACITY;
+        this.columns = new Column[this.columnClasses.length];
+        for (int c = 0; c < this.columns.length; c++) {
+            this.columnClasses[c] = schema.getColumnClass(c);
+            if (this.columnClasses[c].equals(AveUpdatableSelection.class)) {
+                this.columns[c] = new ChoiceColumn(schema.getChoiceModel(c), this.capacity);
+            } else if (this.columnClasses[c].equals(Boolean.class)) {
+                this.columns[c] = new BooleanColumn();
+            } else if (dictionaryEncodeStrings) {
+                this.columns[c] = new DictionaryColumn(this.capacity);
+            } else {
+                this.columns[c] = new StringColumn(this.capacity);
+            }
+        }
+    }
+
+    // Grows all columns, so at least minCapacity rows fit.
+    private void ensureCapacity(int minCapacity) {
+        if (minCapacity <= this.capacity) {
+            return;
+        }
+        this.capacity = Math.max(this.capacity + (this.capacity >> 1), minCapacity);
+        for (Column column : this.columns) {
+            column.ensureCapacity(this.capacity);
+        }
+    }
+
+    /**
+     * Inserts rows at <code>row</code> in the model. The values of the entries
+     * are copied into the columns and the entries are released by calling
+     * their <code>removeNotify()</code>. A single notification of the rows
+     * being inserted will be generated.
+     *
+     * @param row the row index of the first inserted row
+     * @param tableEntries The non-null {@code AveTableRowEntry} objects to be inserted.
+     * @exception ArrayIndexOutOfBoundsException if the row was invalid
+     */
+    @Override
+    public void insertRows(int row, final Collection<AveTableRowEntry> tableEntries) {
+        if (row < 0 || row > this.rowCount) {
+            throw new ArrayIndexOutOfBoundsException(row);
+        }
+        if (tableEntries.isEmpty()) {
+            return;
+        }
+        for (AveTableRowEntry tableEntry : tableEntries) {
+            super.checkColumnCount(tableEntry);
+        }
+        final int count = tableEntries.size();
+        this.ensureCapacity(this.rowCount + count);
+        for (Column column : this.columns) {
+            column.insertRange(row, count, this.rowCount);
+        }
+        int currentIndex = row;
+        for (AveTableRowEntry tableEntry : tableEntries) {
+            for (int c = 0; c < this.columns.length; c++) {
+                this.columns[c].set(currentIndex, tableEntry.getRowDataForColumn(c));
+            }
+            tableEntry.removeNotify();
+            currentIndex++;
+        }
+        this.rowCount += count;
+        fireTableRowsInserted(row, row + count - 1);
+    }
+
+    @Override
+    public void removeRange(int fromRow, int toRow) {
+        super.checkRange(fromRow, toRow);
+        for (Column column : this.columns) {
+            column.removeRange(fromRow, toRow + 1, this.rowCount);
+        }
+        this.rowCount -= toRow - fromRow + 1;
+        fireTableRowsDeleted(fromRow, toRow);
+    }
+
+    /**
+     * Removes all rows and stops listening to the shared models of the choice
+     * columns.
+     */
+    @Override
+    public void removeNotify() {
+        super.removeNotify();
+        for (Column column : this.columns) {
+            if (column instanceof ChoiceColumn) {
+                ((ChoiceColumn) column).removeNotify();
+            }
+        }
+    }
+
+    @Override
+    public int getRowCount() {
+        return this.rowCount;
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return this.columnClasses[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        if (rowIndex < 0 || rowIndex >= this.rowCount) {
+            throw new ArrayIndexOutOfBoundsException(rowIndex);
+        }
+        return this.columns[columnIndex].getValue(rowIndex);
+    }
+
+    @Override
+    public String getStringValueAt(int rowIndex, int columnIndex) {
+        if (rowIndex < 0 || rowIndex >= this.rowCount) {
+            throw new ArrayIndexOutOfBoundsException(rowIndex);
+        }
+        // Avoids creating a selection for choice columns.
+        final Object value = this.columns[columnIndex].get(rowIndex);
+        return value instanceof Boolean ? ((Boolean) value ? "true" : "false") : (String) value;
+    }
+
+    /**
+     * Sets the object value for the cell at <code>columnIndex</code> and
+     * <code>rowIndex</code>. <code>aValue</code> is the new value.
+     * This method will generate a <code>tableChanged</code> notification.
+     *
+     * @param aValue      the new value; this can be null
+     * @param rowIndex    the row whose value is to be changed
+     * @param columnIndex the column whose value is to be changed
+     * @exception ArrayIndexOutOfBoundsException if an invalid row or column was given
+     */
+    @Override
+    public void setValueAt(final Object aValue, int rowIndex, int columnIndex) {
+        if (rowIndex < 0 || rowIndex >= this.rowCount) {
+            throw new ArrayIndexOutOfBoundsException(rowIndex);
+        }
+        this.columns[columnIndex].set(rowIndex, aValue);
+        fireTableCellUpdated(rowIndex, columnIndex);
+    }
+
+    /**
+     * The storage of one column. Values are passed as they are stored in an
+     * {@link AveTableRowEntry}.
+     */
+    private abstract static class Column {
+
+        abstract void ensureCapacity(int capacity);
+
+        // Returns the stored value, i.e. the String, the Boolean or the selected item.
+        abstract Object get(int row);
+
+        // Returns the value as it is returned by getValueAt.
+        Object getValue(int row) {
+            return this.get(row);
+        }
+
+        abstract void set(int row, Object aValue);
+
+        // Shifts the rows at and after row by count rows to open a gap, the capacity is already sufficient.
+        abstract void insertRange(int row, int count, int rowCount);
+
+        // Removes the rows from fromRow (inclusive) to toRow (exclusive) and shifts the following rows.
+        abstract void removeRange(int fromRow, int toRow, int rowCount);
+    }
+
+    private static final class StringColumn extends Column {
+
+        private String[] values;
+
+        StringColumn(int capacity) {
+            this.values = new String[capacity];
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            this.values = Arrays.copyOf(this.values, capacity);
+        }
+
+        @Override
+        Object get(int row) {
+            return this.values[row];
+        }
+
+        @Override
+        void set(int row, Object aValue) {
+            this.values[row] = (String) aValue;
+        }
+
+        @Override
+        void insertRange(int row, int count, int rowCount) {
+            System.arraycopy(this.values, row, this.values, row + count, rowCount - row);
+        }
+
+        @Override
+        void removeRange(int fromRow, int toRow, int rowCount) {
+            System.arraycopy(this.values, toRow, this.values, fromRow, rowCount - toRow);
+            Arrays.fill(this.values, rowCount - (toRow - fromRow), rowCount, null);
+        }
+    }
+
+    private static final class BooleanColumn extends Column {
+
+        private final BitSet values = new BitSet();
+
+        @Override
+        void ensureCapacity(int capacity) {
+            // A BitSet grows on demand.
+        }
+
+        @Override
+        Object get(int row) {
+            return this.values.get(row);
+        }
+
+        @Override
+        void set(int row, Object aValue) {
+            this.values.set(row, AveTableRowEntry.toBoolean(aValue));
+        }
+
+        // Returns a BitSet, in which bit i + offset is set, if bit i of bits is set. Works on whole words.
+        private static BitSet shifted(BitSet bits, int offset) {
+            final long[] words = bits.toLongArray();
+            final int wordOffset = offset >>> 6;
+            final int bitOffset = offset & 63;
+            final long[] shiftedWords = new long[words.length + wordOffset + 1];
+            for (int i = 0; i < words.length; i++) {
+                shiftedWords[i + wordOffset] |= words[i] << bitOffset;
+                if (bitOffset != 0) {
+                    shiftedWords[i + wordOffset + 1] |= words[i] >>> (64 - bitOffset);
+                }
+            }
+            return BitSet.valueOf(shiftedWords);
+        }
+
+        @Override
+        void insertRange(int row, int count, int rowCount) {
+            if (row == rowCount) {
+                return;
+            }
+            final BitSet tail = this.values.get(row, rowCount);
+            this.values.clear(row, rowCount);
+            if (!tail.isEmpty()) {
+                this.values.or(shifted(tail, row + count));
+            }
+        }
+
+        @Override
+        void removeRange(int fromRow, int toRow, int rowCount) {
+            final BitSet tail = this.values.get(toRow, rowCount);
+            this.values.clear(fromRow, rowCount);
+            if (!tail.isEmpty()) {
+                this.values.or(shifted(tail, fromRow));
+            }
+        }
+    }
+
+    /**
+     * Stores the codes of the values of a column in an <code>int</code> array.
+     * Each distinct value is stored once in the dictionary. The code
+     * <i>-1</i> stands for <i>null</i>. Codes are never removed from the
+     * dictionary, so it only grows with the number of distinct values.
+     */
+    private static class DictionaryColumn extends Column {
+
+        protected final List<Object> dictionary;
+        protected final Map<Object, Integer> codes;
+        private int[] rowCodes;
+
+        DictionaryColumn(int capacity) {
+            this.dictionary = new ArrayList<>();
+            this.codes = new HashMap<>();
+            this.rowCodes = new int[capacity];
+        }
+
+        protected int codeOf(Object aValue) {
+            if (aValue == null) {
+                return -1;
+            }
+            Integer code = this.codes.get(aValue);
+            if (code == null) {
+                code = this.dictionary.size();
+                this.dictionary.add(aValue);
+                this.codes.put(aValue, code);
+            }
+            return code;
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            this.rowCodes = Arrays.copyOf(this.rowCodes, capacity);
+        }
+
+        @Override
+        Object get(int row) {
+            final int code = this.rowCodes[row];
+            return code < 0 ? null : this.dictionary.get(code);
+        }
+
+        @Override
+        void set(int row, Object aValue) {
+            this.rowCodes[row] = this.codeOf(aValue);
+        }
+
+        @Override
+        void insertRange(int row, int count, int rowCount) {
+            System.arraycopy(this.rowCodes, row, this.rowCodes, row + count, rowCount - row);
+        }
+
+        @Override
+        void removeRange(int fromRow, int toRow, int rowCount) {
+            System.arraycopy(this.rowCodes, toRow, this.rowCodes, fromRow, rowCount - toRow);
+        }
+    }
+
+    /**
+     * Stores the selected items of a choice column as codes into a dictionary
+     * of the items of the shared model. The position of an item in the
+     * shared model might change without an update, e.g. by
+     * <code>addElement</code>, so the codes refer to the dictionary instead.
+     * After an update of the shared model the dictionary is remapped with the
+     * same rules as an {@link AveUpdatableSelection} remaps its selected item.
+     */
+    private static final class ChoiceColumn extends DictionaryColumn implements UpdateListener<String> {
+
+        private final AveSharedDataModel<String> sharedModel;
+
+        ChoiceColumn(AveSharedDataModel<String> sharedModel, int capacity) {
+            super(capacity);
+            this.sharedModel = sharedModel;
+            sharedModel.addUpdateListener(this);
+        }
+
+        void removeNotify() {
+            this.sharedModel.removeUpdateListener(this);
+        }
+
+        @Override
+        Object getValue(int row) {
+            return new AveUpdatableSelection<>(this.sharedModel, this.get(row), this.sharedModel.getPrototypeDisplayValue());
+        }
+
+        @Override
+        void set(int row, Object aValue) {
+            Object anItem = aValue instanceof AveUpdatableSelection
+                    ? ((AveUpdatableSelection<?>) aValue).getSelectedItem() : aValue;
+            final int index = this.sharedModel.getIndexOf(anItem);
+            // Keep the instance of the shared model, so equal items are not held multiple times.
+            if (index >= 0) {
+                anItem = this.sharedModel.get(index);
+            } else if (anItem == null && !this.sharedModel.isEmpty()) {
+                // Empty selections are not allowed, as in AveTableRowEntry.
+                anItem = this.sharedModel.get(0);
+            }
+            super.set(row, anItem);
+        }
+
+        @Override
+        public void updating(State state, List<String> newItems, List<String> currentItems, String prototypeDisplayValue) {
+            this.updating(state, new UpdateContext<>(newItems, currentItems, prototypeDisplayValue));
+        }
+
+        @Override
+        public void updating(State state, UpdateContext<String> context) {
+            if (!UpdateListener.State.AFTER_UPDATE.equals(state)) {
+                return;
+            }
+            final List<String> newItems = context.getNewItems();
+            this.codes.clear();
+            for (int code = 0; code < this.dictionary.size(); code++) {
+                final Object item = this.dictionary.get(code);
+                final int indexInCurrentItems = context.indexInCurrentItems(item);
+                final int indexInNewItems = context.indexInNewItems(item);
+                Object newSelection = item;
+                if (indexInCurrentItems != indexInNewItems) {
+                    if (indexInNewItems >= 0) {
+                        newSelection = newItems.get(indexInNewItems);
+                    } else if (indexInCurrentItems >= 0 && context.isOnlyMutationAt(indexInCurrentItems)) {
+                        // Only the selected item has been renamed.
+                        newSelection = newItems.get(indexInCurrentItems);
+                    } else if (!newItems.isEmpty()) {
+                        newSelection = newItems.get(0);
+                    }
+                }
+                this.dictionary.set(code, newSelection);
+                this.codes.putIfAbsent(newSelection, code);
+            }
+        }
+    }
+}
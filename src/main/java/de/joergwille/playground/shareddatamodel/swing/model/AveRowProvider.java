@@ -0,0 +1,57 @@
+package de.joergwille.playground.shareddatamodel.swing.model;
+
+/**
+ * AveRowProvider The source of the rows of an {@link AveVirtualTableModel},
+ * e.g. a file or a generator of simulation results. Rows are requested on
+ * demand, when they are about to be displayed, so a provider should be able
+ * to create any row without creating all rows before it.
+ *
+ * @author willejoerg
+ */
+public interface AveRowProvider {
+
+    /**
+     * Returns the number of rows of this provider.
+     *
+     * @return the number of rows.
+     */
+    int getRowCount();
+
+    /**
+     * Creates the row at the given index. The row is owned by the table model
+     * and released by calling its <code>removeNotify()</code>, once it is not
+     * displayed anymore.
+     *
+     * @param row the index of the row
+     * @return a new <code>AveTableRowEntry</code>.
+     */
+    AveTableRowEntry createRow(int row);
+
+    /**
+     * Creates consecutive rows. The default implementation calls
+     * {@link #createRow(int)} for each row, providers which read rows in
+     * blocks may override it.
+     *
+     * @param firstRow the index of the first row
+     * @param count the number of rows to create
+     * @return an array of <i>count</i> new <code>AveTableRowEntry</code>.
+     */
+    default AveTableRowEntry[] createRows(int firstRow, int count) {
+        final AveTableRowEntry[] rows = new AveTableRowEntry[count];
+        for (int i = 0; i < count; i++) {
+            rows[i] = this.createRow(firstRow + i);
+        }
+        return rows;
+    }
+
+    /**
+     * Stores an edited row. The default implementation does not support
+     * storing rows.
+     *
+     * @param row the index of the row
+     * @param rowEntry the edited row
+     */
+    default void storeRow(int row, AveTableRowEntry rowEntry) {
+        throw new UnsupportedOperationException("The rows of this 'AveRowProvider' can not be stored.");
+    }
+}
@@ -0,0 +1,796 @@
+package de.joergwille.playground.shareddatamodel.swing.model;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import javax.swing.RowFilter;
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.table.TableModel;
+
+/**
+ * AveRowSorter A <code>RowSorter</code> for large tables. The mapping between
+ * view and model is kept in primitive <code>int</code> arrays, no object is
+ * created per row.<br>
+ * The values of a sorted column are converted once into sort keys: cells
+ * which look like a number, as AVF cells often do, are compared by their
+ * numeric value, all other cells by a <code>CollationKey</code>. Empty cells
+ * come first, then numbers, then text. Rows with equal keys keep the order of
+ * the model.<br>
+ * Like <code>DefaultRowSorter</code> the rows are neither sorted nor
+ * filtered as long as there is no sort key and no filter, so no value is
+ * read. Inserted and updated rows are sorted among themselves and merged into
+ * the sorted rows, instead of sorting all rows again.<br>
+ * In parallel sort mode all rows of large tables are sorted on all cores, if
+ * there is more than one: each sorted column is converted into dense
+ * <code>int</code> ranks and the rows are sorted by
+ * <code>Arrays.parallelSort</code> over <code>long</code> values packing the
+ * rank and the current position, one pass per sort key starting with the
+ * last. For an {@link AveTableModel} the sort keys are extracted in parallel
+ * as well. The duration of the last sort is available by
+ * {@link #getLastSortNanos()}.<br>
+ * The rows of an {@link AveVirtualTableModel} are not sortable, since sorting
+ * reads every row, which would create every row of its provider. They can
+ * still be filtered by a filter which only uses the identifier of a row.
+ *
+ * @author willejoerg
+ */
+public class AveRowSorter extends RowSorter<TableModel> {
+
+    private static final int MAX_SORT_KEYS = 3;
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+    private static final int PARALLEL_SORT_THRESHOLD = 1 << 14;
+    private static final int PARALLEL_CHUNK_SIZE = 1 << 12;
+    private final TableModel model;
+    private final Collator collator;
+    private final FilterEntry filterEntry;
+    private List<SortKey> sortKeys;
+    private RowFilter<? super TableModel, ? super Integer> rowFilter;
+    private ColumnKeys[] columnKeys; // by column, null if the column is not sorted
+    private ColumnKeys[] activeKeys; // in order of the sort keys, without unsorted keys
+    private boolean[] activeDescending;
+    private int[] viewToModel; // null if the rows are neither sorted nor filtered
+    private int[] modelToView; // -1 for rows excluded by the filter
+    private int modelRowCount;
+    private boolean parallelSort;
+    private long lastSortNanos;
+    private final boolean sortable;
+
+    /**
+     * Creates an <code>AveRowSorter</code>, which neither sorts nor filters
+     * the rows of the model.
+     *
+     * @param model the table model
+     */
+    public AveRowSorter(final TableModel model) {
+        this.model = model;
+        this.collator = Collator.getInstance();
+        this.filterEntry = new FilterEntry();
+        this.sortKeys = Collections.emptyList();
+        this.columnKeys = new ColumnKeys[model.getColumnCount()];
+        this.activeKeys = new ColumnKeys[0];
+        this.activeDescending = new boolean[0];
+        this.modelRowCount = model.getRowCount();
+        this.sortable = !(model instanceof AveVirtualTableModel);
+    }
+
+    @Override
+    public TableModel getModel() {
+        return this.model;
+    }
+
+    /**
+     * Makes the column the primary sort key. If it is the primary sort key
+     * already, its sort order is reversed.
+     *
+     * @param column index of the column in the model
+     */
+    @Override
+    public void toggleSortOrder(int column) {
+        this.checkColumn(column);
+        if (!this.sortable) {
+            return;
+        }
+        List<SortKey> keys = new ArrayList<>(this.sortKeys);
+        int sortIndex = keys.size() - 1;
+        while (sortIndex >= 0 && keys.get(sortIndex).getColumn() != column) {
+            sortIndex--;
+        }
+        if (sortIndex == 0) {
+            final SortOrder sortOrder = keys.get(0).getSortOrder() == SortOrder.ASCENDING
+                    ? SortOrder.DESCENDING : SortOrder.ASCENDING;
+            keys.set(0, new SortKey(column, sortOrder));
+        } else {
+            if (sortIndex > 0) {
+                keys.remove(sortIndex);
+            }
+            keys.add(0, new SortKey(column, SortOrder.ASCENDING));
+        }
+        if (keys.size() > MAX_SORT_KEYS) {
+            keys = keys.subList(0, MAX_SORT_KEYS);
+        }
+        this.setSortKeys(keys);
+    }
+
+    @Override
+    public List<? extends SortKey> getSortKeys() {
+        return this.sortKeys;
+    }
+
+    /**
+     * Sets the keys to sort by.
+     *
+     * @param keys the sort keys or <i>null</i> to leave the rows unsorted.
+     * @exception IllegalArgumentException if a key is <i>null</i>
+     * @exception IndexOutOfBoundsException if the column of a key is outside the model
+     * @exception UnsupportedOperationException if the rows are not sortable
+     */
+    @Override
+    public void setSortKeys(final List<? extends SortKey> keys) {
+        final List<SortKey> newSortKeys;
+        if (keys == null || keys.isEmpty()) {
+            newSortKeys = Collections.emptyList();
+        } else if (!this.sortable) {
+            throw new UnsupportedOperationException("The rows of an 'AveVirtualTableModel' are not sortable.");
+        } else {
+            for (SortKey key : keys) {
+                if (key == null) {
+                    throw new IllegalArgumentException("Invalid SortKey");
+                }
+                this.checkColumn(key.getColumn());
+            }
+            newSortKeys = Collections.unmodifiableList(new ArrayList<>(keys));
+        }
+        if (!newSortKeys.equals(this.sortKeys)) {
+            this.sortKeys = newSortKeys;
+            fireSortOrderChanged();
+            this.sort();
+        }
+    }
+
+    /**
+     * Returns if the rows can be sorted. The rows of an
+     * {@link AveVirtualTableModel} are not sortable.
+     *
+     * @return <i>true</i> if the rows can be sorted.
+     */
+    public boolean isSortable() {
+        return this.sortable;
+    }
+
+    /**
+     * Specifies if all rows of large tables are sorted on all cores. The
+     * rows are sorted again.
+     *
+     * @param parallelSort <i>true</i> to sort in parallel.
+     */
+    public void setParallelSort(final boolean parallelSort) {
+        if (this.parallelSort != parallelSort) {
+            this.parallelSort = parallelSort;
+            this.sort();
+        }
+    }
+
+    /**
+     * Returns if all rows of large tables are sorted on all cores.
+     *
+     * @return <i>true</i> if sorting in parallel.
+     */
+    public boolean isParallelSort() {
+        return this.parallelSort;
+    }
+
+    /**
+     * Returns the duration of the last sort of all rows, including the
+     * extraction of new sort keys.
+     *
+     * @return the duration in nanoseconds.
+     */
+    public long getLastSortNanos() {
+        return this.lastSortNanos;
+    }
+
+    /**
+     * Returns the filter, which determines the rows to be shown.
+     *
+     * @return the filter or <i>null</i> if all rows are shown.
+     */
+    public RowFilter<? super TableModel, ? super Integer> getRowFilter() {
+        return this.rowFilter;
+    }
+
+    /**
+     * Sets the filter, which determines the rows to be shown, and sorts the
+     * rows.
+     *
+     * @param rowFilter the filter or <i>null</i> to show all rows.
+     */
+    public void setRowFilter(final RowFilter<? super TableModel, ? super Integer> rowFilter) {
+        this.rowFilter = rowFilter;
+        this.sort();
+    }
+
+    /**
+     * Filters and sorts the given rows again, e.g. after the filter changed
+     * its decision for these rows. The other rows keep their order. A
+     * notification of the changed order will be sent to all listeners.
+     *
+     * @param rows the indices of the rows in the model
+     * @exception IndexOutOfBoundsException if a row is outside the model
+     */
+    public void filterChanged(final int... rows) {
+        if (this.viewToModel == null) {
+            return;
+        }
+        for (int row : rows) {
+            if (row < 0 || row >= this.modelRowCount) {
+                throw new IndexOutOfBoundsException("Invalid row " + row);
+            }
+        }
+        final int[] lastViewToModel = this.viewToModel.clone();
+        this.reinsertRows(rows);
+        fireRowSorterChanged(lastViewToModel);
+    }
+
+    /**
+     * Filters and sorts all rows of the model. A notification of the changed
+     * order will be sent to all listeners.
+     */
+    public void sort() {
+        final long start = System.nanoTime();
+        final int[] lastViewToModel = this.viewToModel != null ? this.viewToModel : identity(this.modelRowCount);
+        this.modelRowCount = this.model.getRowCount();
+        this.updateActiveKeys();
+        if (this.activeKeys.length == 0 && this.rowFilter == null) {
+            this.viewToModel = null;
+            this.modelToView = null;
+        } else {
+            int[] rows = new int[this.modelRowCount];
+            int count = 0;
+            for (int row = 0; row < this.modelRowCount; row++) {
+                if (this.include(row)) {
+                    rows[count++] = row;
+                }
+            }
+            if (count < rows.length) {
+                rows = Arrays.copyOf(rows, count);
+            }
+            if (this.isSortedInParallel(count)) {
+                this.parallelSortRows(rows);
+            } else {
+                this.sortRows(rows);
+            }
+            this.viewToModel = rows;
+            this.updateModelToView();
+        }
+        this.lastSortNanos = System.nanoTime() - start;
+        fireRowSorterChanged(lastViewToModel);
+    }
+
+    @Override
+    public int convertRowIndexToModel(int index) {
+        if (this.viewToModel == null) {
+            if (index < 0 || index >= this.model.getRowCount()) {
+                throw new IndexOutOfBoundsException("Invalid index");
+            }
+            return index;
+        }
+        return this.viewToModel[index];
+    }
+
+    @Override
+    public int convertRowIndexToView(int index) {
+        if (this.modelToView == null) {
+            if (index < 0 || index >= this.model.getRowCount()) {
+                throw new IndexOutOfBoundsException("Invalid index");
+            }
+            return index;
+        }
+        return this.modelToView[index];
+    }
+
+    @Override
+    public int getViewRowCount() {
+        return this.viewToModel != null ? this.viewToModel.length : this.model.getRowCount();
+    }
+
+    @Override
+    public int getModelRowCount() {
+        return this.model.getRowCount();
+    }
+
+    @Override
+    public void modelStructureChanged() {
+        this.columnKeys = new ColumnKeys[this.model.getColumnCount()];
+        if (!this.sortKeys.isEmpty()) {
+            this.sortKeys = Collections.emptyList();
+            fireSortOrderChanged();
+        }
+        this.sort();
+    }
+
+    @Override
+    public void allRowsChanged() {
+        Arrays.fill(this.columnKeys, null);
+        this.sort();
+    }
+
+    @Override
+    public void rowsInserted(int firstRow, int endRow) {
+        if (firstRow < 0 || endRow < firstRow || firstRow > this.modelRowCount) {
+            throw new IndexOutOfBoundsException("Invalid range");
+        }
+        final int oldModelRowCount = this.modelRowCount;
+        final int count = endRow - firstRow + 1;
+        this.modelRowCount = this.model.getRowCount();
+        if (this.viewToModel == null) {
+            return;
+        }
+        for (ColumnKeys keys : this.activeKeys) {
+            keys.insertRows(firstRow, count, oldModelRowCount);
+            for (int row = firstRow; row <= endRow; row++) {
+                keys.update(row, this.collator);
+            }
+        }
+        for (int i = 0; i < this.viewToModel.length; i++) {
+            if (this.viewToModel[i] >= firstRow) {
+                this.viewToModel[i] += count;
+            }
+        }
+        this.mergeRows(this.includedRows(firstRow, endRow));
+        this.updateModelToView();
+    }
+
+    @Override
+    public void rowsDeleted(int firstRow, int endRow) {
+        if (firstRow < 0 || endRow >= this.modelRowCount || endRow < firstRow) {
+            throw new IndexOutOfBoundsException("Invalid range");
+        }
+        final int oldModelRowCount = this.modelRowCount;
+        final int count = endRow - firstRow + 1;
+        this.modelRowCount = this.model.getRowCount();
+        if (this.viewToModel == null) {
+            return;
+        }
+        for (ColumnKeys keys : this.activeKeys) {
+            keys.deleteRows(firstRow, count, oldModelRowCount);
+        }
+        int viewRowCount = 0;
+        for (int modelRow : this.viewToModel) {
+            if (modelRow < firstRow) {
+                this.viewToModel[viewRowCount++] = modelRow;
+            } else if (modelRow > endRow) {
+                this.viewToModel[viewRowCount++] = modelRow - count;
+            }
+        }
+        this.viewToModel = Arrays.copyOf(this.viewToModel, viewRowCount);
+        this.updateModelToView();
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow) {
+        if (firstRow < 0 || endRow >= this.modelRowCount || endRow < firstRow) {
+            throw new IndexOutOfBoundsException("Invalid range");
+        }
+        if (this.viewToModel == null) {
+            return;
+        }
+        for (ColumnKeys keys : this.activeKeys) {
+            for (int row = firstRow; row <= endRow; row++) {
+                keys.update(row, this.collator);
+            }
+        }
+        this.reinsertUpdatedRows(firstRow, endRow);
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow, int column) {
+        this.checkColumn(column);
+        if (firstRow < 0 || endRow >= this.modelRowCount || endRow < firstRow) {
+            throw new IndexOutOfBoundsException("Invalid range");
+        }
+        if (this.viewToModel == null || (this.rowFilter == null && this.columnKeys[column] == null)) {
+            return;
+        }
+        if (this.columnKeys[column] != null) {
+            for (int row = firstRow; row <= endRow; row++) {
+                this.columnKeys[column].update(row, this.collator);
+            }
+        }
+        this.reinsertUpdatedRows(firstRow, endRow);
+    }
+
+    // Unlike for inserted or deleted rows, a JTable only follows a changed order of updated rows by an event.
+    private void reinsertUpdatedRows(int firstRow, int endRow) {
+        final int[] lastViewToModel = this.viewToModel.clone();
+        this.reinsertRows(identity(firstRow, endRow));
+        if (!Arrays.equals(lastViewToModel, this.viewToModel)) {
+            fireRowSorterChanged(lastViewToModel);
+        }
+    }
+
+    private void checkColumn(int column) {
+        if (column < 0 || column >= this.model.getColumnCount()) {
+            throw new IndexOutOfBoundsException("column beyond range of TableModel");
+        }
+    }
+
+    private static int[] identity(int rowCount) {
+        return identity(0, rowCount - 1);
+    }
+
+    private static int[] identity(int firstRow, int endRow) {
+        final int[] rows = new int[Math.max(0, endRow - firstRow + 1)];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = firstRow + i;
+        }
+        return rows;
+    }
+
+    // Creates the missing keys of the sorted columns and drops the keys of the other columns.
+    private void updateActiveKeys() {
+        final ColumnKeys[] keys = new ColumnKeys[this.columnKeys.length];
+        final List<ColumnKeys> active = new ArrayList<>(this.sortKeys.size());
+        final boolean[] descending = new boolean[this.sortKeys.size()];
+        for (SortKey sortKey : this.sortKeys) {
+            if (sortKey.getSortOrder() == SortOrder.UNSORTED) {
+                continue;
+            }
+            final int column = sortKey.getColumn();
+            if (keys[column] == null) {
+                keys[column] = this.columnKeys[column] != null ? this.columnKeys[column] : new ColumnKeys(column);
+                descending[active.size()] = sortKey.getSortOrder() == SortOrder.DESCENDING;
+                active.add(keys[column]);
+            }
+        }
+        this.columnKeys = keys;
+        this.activeKeys = active.toArray(new ColumnKeys[active.size()]);
+        this.activeDescending = Arrays.copyOf(descending, this.activeKeys.length);
+    }
+
+    private boolean include(int row) {
+        if (this.rowFilter == null) {
+            return true;
+        }
+        this.filterEntry.modelIndex = row;
+        return this.rowFilter.include(this.filterEntry);
+    }
+
+    private int[] includedRows(int firstRow, int endRow) {
+        int[] rows = new int[endRow - firstRow + 1];
+        int count = 0;
+        for (int row = firstRow; row <= endRow; row++) {
+            if (this.include(row)) {
+                rows[count++] = row;
+            }
+        }
+        return count < rows.length ? Arrays.copyOf(rows, count) : rows;
+    }
+
+    // Removes the rows from the view and merges them again, if they are included by the filter.
+    private void reinsertRows(final int[] rows) {
+        int removed = 0;
+        for (int row : rows) {
+            if (this.modelToView[row] >= 0) {
+                this.viewToModel[this.modelToView[row]] = -1;
+                this.modelToView[row] = -1;
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            int viewRowCount = 0;
+            for (int modelRow : this.viewToModel) {
+                if (modelRow >= 0) {
+                    this.viewToModel[viewRowCount++] = modelRow;
+                }
+            }
+            this.viewToModel = Arrays.copyOf(this.viewToModel, viewRowCount);
+        }
+        int[] includedRows = new int[rows.length];
+        int count = 0;
+        for (int row : rows) {
+            // -2 marks a row as merged already, in case it is given twice
+            if (this.modelToView[row] == -1 && this.include(row)) {
+                includedRows[count++] = row;
+                this.modelToView[row] = -2;
+            }
+        }
+        this.mergeRows(count < includedRows.length ? Arrays.copyOf(includedRows, count) : includedRows);
+        this.updateModelToView();
+    }
+
+    // Sorts the rows and merges them with the sorted rows of the view.
+    private void mergeRows(final int[] rows) {
+        if (rows.length == 0) {
+            return;
+        }
+        this.sortRows(rows);
+        final int[] view = this.viewToModel;
+        final int[] merged = new int[view.length + rows.length];
+        int v = 0;
+        int r = 0;
+        for (int i = 0; i < merged.length; i++) {
+            if (r >= rows.length || (v < view.length && this.compareRows(view[v], rows[r]) <= 0)) {
+                merged[i] = view[v++];
+            } else {
+                merged[i] = rows[r++];
+            }
+        }
+        this.viewToModel = merged;
+    }
+
+    private void updateModelToView() {
+        if (this.modelToView == null || this.modelToView.length != this.modelRowCount) {
+            this.modelToView = new int[this.modelRowCount];
+        }
+        Arrays.fill(this.modelToView, -1);
+        for (int i = 0; i < this.viewToModel.length; i++) {
+            this.modelToView[this.viewToModel[i]] = i;
+        }
+    }
+
+    private int compareRows(int row1, int row2) {
+        for (int k = 0; k < this.activeKeys.length; k++) {
+            final int result = this.activeKeys[k].compare(row1, row2);
+            if (result != 0) {
+                return this.activeDescending[k] ? -result : result;
+            }
+        }
+        return Integer.compare(row1, row2);
+    }
+
+    private void sortRows(final int[] rows) {
+        this.mergeSort(rows.clone(), rows, 0, rows.length);
+    }
+
+    // Sorting in parallel does not pay off for few rows or without a second core.
+    private boolean isSortedInParallel(int rowCount) {
+        return this.parallelSort && rowCount >= PARALLEL_SORT_THRESHOLD && ForkJoinPool.getCommonPoolParallelism() > 1;
+    }
+
+    // Sorts the rows stable by one key after the other, starting with the least significant key.
+    private void parallelSortRows(final int[] rows) {
+        final long[] packed = new long[rows.length];
+        for (int k = this.activeKeys.length - 1; k >= 0; k--) {
+            final int[] ranks = this.activeKeys[k].ranks(this.activeDescending[k]);
+            // The position in the lower half keeps the order of rows with equal rank.
+            Arrays.parallelSetAll(packed, i -> ((long) ranks[rows[i]] << 32) | i);
+            Arrays.parallelSort(packed);
+            final int[] previous = rows.clone();
+            Arrays.parallelSetAll(rows, i -> previous[(int) packed[i]]);
+        }
+    }
+
+    // Sorts src[from, to) into dst[from, to), which both contain the same rows in this range.
+    private void mergeSort(final int[] src, final int[] dst, int from, int to) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            for (int i = from + 1; i < to; i++) {
+                final int row = dst[i];
+                int j = i;
+                while (j > from && this.compareRows(dst[j - 1], row) > 0) {
+                    dst[j] = dst[j - 1];
+                    j--;
+                }
+                dst[j] = row;
+            }
+            return;
+        }
+        final int mid = (from + to) >>> 1;
+        this.mergeSort(dst, src, from, mid);
+        this.mergeSort(dst, src, mid, to);
+        if (this.compareRows(src[mid - 1], src[mid]) <= 0) {
+            System.arraycopy(src, from, dst, from, to - from);
+            return;
+        }
+        for (int i = from, p = from, q = mid; i < to; i++) {
+            if (q >= to || (p < mid && this.compareRows(src[p], src[q]) <= 0)) {
+                dst[i] = src[p++];
+            } else {
+                dst[i] = src[q++];
+            }
+        }
+    }
+
+    /**
+     * The sort keys of the cells of a column by row of the model.
+     */
+    private final class ColumnKeys {
+
+        private static final byte NULL = 0;
+        private static final byte NUMBER = 1;
+        private static final byte TEXT = 2;
+        private final int column;
+        private byte[] kinds;
+        private double[] numbers;
+        private CollationKey[] texts;
+
+        ColumnKeys(int column) {
+            this.column = column;
+            this.kinds = new byte[modelRowCount];
+            this.numbers = new double[modelRowCount];
+            this.texts = new CollationKey[modelRowCount];
+            final int rowCount = modelRowCount;
+            // The rows of an AveTableModel can be read by several threads, as long as it is not changed meanwhile.
+            if (isSortedInParallel(rowCount) && model instanceof AveTableModel) {
+                IntStream.range(0, (rowCount + PARALLEL_CHUNK_SIZE - 1) / PARALLEL_CHUNK_SIZE).parallel().forEach(chunk -> {
+                    // A Collator must not be used by several threads.
+                    final Collator chunkCollator = (Collator) collator.clone();
+                    final int end = Math.min(rowCount, (chunk + 1) * PARALLEL_CHUNK_SIZE);
+                    for (int row = chunk * PARALLEL_CHUNK_SIZE; row < end; row++) {
+                        this.update(row, chunkCollator);
+                    }
+                });
+            } else {
+                for (int row = 0; row < rowCount; row++) {
+                    this.update(row, collator);
+                }
+            }
+        }
+
+        void update(int row, final Collator rowCollator) {
+            final Object value = model.getValueAt(row, this.column);
+            this.texts[row] = null;
+            if (value == null) {
+                this.kinds[row] = NULL;
+            } else if (value instanceof Number) {
+                this.kinds[row] = NUMBER;
+                this.numbers[row] = ((Number) value).doubleValue();
+            } else {
+                final String text = value instanceof AveUpdatableSelection
+                        ? String.valueOf(((AveUpdatableSelection<?>) value).getSelectedItem()) : value.toString();
+                if (text.isEmpty()) {
+                    // An empty cell of an AVF table is an empty string.
+                    this.kinds[row] = NULL;
+                    return;
+                }
+                if (looksNumeric(text)) {
+                    try {
+                        this.numbers[row] = Double.parseDouble(text);
+                        this.kinds[row] = NUMBER;
+                        return;
+                    } catch (NumberFormatException e) {
+                        // compared as text
+                    }
+                }
+                this.kinds[row] = TEXT;
+                this.texts[row] = rowCollator.getCollationKey(text);
+            }
+        }
+
+        void insertRows(int firstRow, int count, int rowCount) {
+            if (rowCount + count > this.kinds.length) {
+                final int capacity = Math.max(rowCount + count, this.kinds.length + (this.kinds.length >> 1));
+                this.kinds = Arrays.copyOf(this.kinds, capacity);
+                this.numbers = Arrays.copyOf(this.numbers, capacity);
+                this.texts = Arrays.copyOf(this.texts, capacity);
+            }
+            System.arraycopy(this.kinds, firstRow, this.kinds, firstRow + count, rowCount - firstRow);
+            System.arraycopy(this.numbers, firstRow, this.numbers, firstRow + count, rowCount - firstRow);
+            System.arraycopy(this.texts, firstRow, this.texts, firstRow + count, rowCount - firstRow);
+        }
+
+        void deleteRows(int firstRow, int count, int rowCount) {
+            System.arraycopy(this.kinds, firstRow + count, this.kinds, firstRow, rowCount - firstRow - count);
+            System.arraycopy(this.numbers, firstRow + count, this.numbers, firstRow, rowCount - firstRow - count);
+            System.arraycopy(this.texts, firstRow + count, this.texts, firstRow, rowCount - firstRow - count);
+            Arrays.fill(this.texts, rowCount - count, rowCount, null);
+        }
+
+        // Returns dense ranks by row, which compare like the keys of the rows.
+        int[] ranks(final boolean descending) {
+            final int rowCount = modelRowCount;
+            int numberCount = 0;
+            int textCount = 0;
+            for (int row = 0; row < rowCount; row++) {
+                if (this.kinds[row] == NUMBER) {
+                    numberCount++;
+                } else if (this.kinds[row] == TEXT) {
+                    textCount++;
+                }
+            }
+            final double[] sortedNumbers = new double[numberCount];
+            final CollationKey[] sortedTexts = new CollationKey[textCount];
+            numberCount = 0;
+            textCount = 0;
+            for (int row = 0; row < rowCount; row++) {
+                if (this.kinds[row] == NUMBER) {
+                    sortedNumbers[numberCount++] = this.numbers[row];
+                } else if (this.kinds[row] == TEXT) {
+                    sortedTexts[textCount++] = this.texts[row];
+                }
+            }
+            Arrays.parallelSort(sortedNumbers);
+            Arrays.parallelSort(sortedTexts);
+            int distinctNumbers = 0;
+            for (int i = 0; i < numberCount; i++) {
+                if (distinctNumbers == 0 || Double.compare(sortedNumbers[distinctNumbers - 1], sortedNumbers[i]) != 0) {
+                    sortedNumbers[distinctNumbers++] = sortedNumbers[i];
+                }
+            }
+            int distinctTexts = 0;
+            for (int i = 0; i < textCount; i++) {
+                if (distinctTexts == 0 || sortedTexts[distinctTexts - 1].compareTo(sortedTexts[i]) != 0) {
+                    sortedTexts[distinctTexts++] = sortedTexts[i];
+                }
+            }
+            final int numberRanks = distinctNumbers;
+            final int textRanks = distinctTexts;
+            final int maxRank = numberRanks + textRanks;
+            final int[] ranks = new int[rowCount];
+            Arrays.parallelSetAll(ranks, row -> {
+                final int rank;
+                if (this.kinds[row] == NUMBER) {
+                    rank = 1 + Arrays.binarySearch(sortedNumbers, 0, numberRanks, this.numbers[row]);
+                } else if (this.kinds[row] == TEXT) {
+                    rank = 1 + numberRanks + Arrays.binarySearch(sortedTexts, 0, textRanks, this.texts[row]);
+                } else {
+                    rank = 0;
+                }
+                return descending ? maxRank - rank : rank;
+            });
+            return ranks;
+        }
+
+        int compare(int row1, int row2) {
+            final byte kind = this.kinds[row1];
+            if (kind != this.kinds[row2]) {
+                return kind - this.kinds[row2];
+            }
+            if (kind == NUMBER) {
+                return Double.compare(this.numbers[row1], this.numbers[row2]);
+            }
+            return kind == TEXT ? this.texts[row1].compareTo(this.texts[row2]) : 0;
+        }
+    }
+
+    // Returns true if the text consists only of characters of a decimal number, which is checked before parsing it.
+    private static boolean looksNumeric(final String text) {
+        final int length = text.length();
+        if (length == 0 || length > 32) {
+            return false;
+        }
+        boolean hasDigit = false;
+        for (int i = 0; i < length; i++) {
+            final char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                hasDigit = true;
+            } else if (c != '.' && c != '-' && c != '+' && c != 'e' && c != 'E') {
+                return false;
+            }
+        }
+        return hasDigit;
+    }
+
+    /**
+     * The entry passed to the filter, which is reused for all rows.
+     */
+    private final class FilterEntry extends RowFilter.Entry<TableModel, Integer> {
+
+        private int modelIndex;
+
+        @Override
+        public TableModel getModel() {
+            return model;
+        }
+
+        @Override
+        public int getValueCount() {
+            return model.getColumnCount();
+        }
+
+        @Override
+        public Object getValue(int index) {
+            return model.getValueAt(this.modelIndex, index);
+        }
+
+        @Override
+        public Integer getIdentifier() {
+            return this.modelIndex;
+        }
+    }
+}
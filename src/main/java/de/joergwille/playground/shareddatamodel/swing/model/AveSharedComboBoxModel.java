@@ -1,15 +1,14 @@
 package de.joergwille.playground.shareddatamodel.swing.model;
 
 import java.io.Serializable;
+import java.lang.reflect.Array;
 import java.util.EventListener;
-import java.util.List;
 import java.util.Objects;
 import javax.swing.DefaultComboBoxModel;
 import javax.swing.DefaultListModel;
 import javax.swing.JComboBox;
 import javax.swing.ListModel;
 import javax.swing.MutableComboBoxModel;
-import javax.swing.event.EventListenerList;
 import javax.swing.event.ListDataEvent;
 import javax.swing.event.ListDataListener;
 
@@ -29,7 +28,7 @@ public class AveSharedComboBoxModel<E> extends AveUpdatableSelection<E>
         implements MutableComboBoxModel<E>, ListModel<E>, ListDataListener,
         UpdateListener<E>, Serializable {
 
-    final protected EventListenerList listenerList; // copied from javax.swing.AbstractListModel
+    final protected SnapshotListenerList<ListDataListener> listenerList;
     private JComboBox<E> associatedComboBox;
     private boolean allowOneMutation;
     private boolean forceDeselectionOnIndexChange;
@@ -59,31 +58,10 @@ public class AveSharedComboBoxModel<E> extends AveUpdatableSelection<E>
         this.associatedComboBox = associatedComboBox;
         this.allowOneMutation = allowOneMutation;
         this.forceDeselectionOnIndexChange = forceDeselectionOnIndexChange;
-        this.listenerList = new EventListenerList();
+        this.listenerList = new SnapshotListenerList<>(ListDataListener.class);
         this.setPrototypeDisplayValue(sharedModel.getPrototypeDisplayValue());
     }
 
-    /**
-     * Implements the rule to allow one mutation of the items.
-     * 
-     * @param newItems The potentially changed list of items.
-     * @param currentItems The original list of items.
-     * @return Returns <i>true</i> if newItems only differs by 1 item.
-     */
-    private boolean isOnlyOneMutation(List<E> newItems, List<E> currentItems) {
-        // If the size has changed, it cannot be a one item mutatation.
-        if (newItems.size() != currentItems.size()) {
-            return false;
-        }
-        int changes = 0;
-        for (int i = 0; i < newItems.size(); i++) {
-            if (!newItems.get(i).equals(currentItems.get(i))) {
-                changes++;
-            }
-        }
-        return (changes <= 1);
-    }
-
     /**
      * Returns the value of the boolean {@code allowOneMutation}. If
      * {@code true} the selected index is retained when exactly one element
@@ -155,6 +133,20 @@ public class AveSharedComboBoxModel<E> extends AveUpdatableSelection<E>
         }
     }
 
+    /**
+     * Shows the selected item of another selection, even if it is <i>null</i>
+     * or not a member of the shared model, then nothing is selected. Unlike
+     * {@link #setSelectedItem(Object)} neither {@code allowEmptySelection} is
+     * applied nor are the other models of the shared model notified, only the
+     * listeners of this model.
+     *
+     * @param anObject the selected item to be shown.
+     */
+    void forceSelectedItem(Object anObject) {
+        super.assignSelectedItem(anObject);
+        this.fireContentsChanged(this, -1, -1);
+    }
+
     @Override
     public void addElement(E anObject) {
         super.sharedModel.addElement(anObject);
@@ -211,23 +203,23 @@ public class AveSharedComboBoxModel<E> extends AveUpdatableSelection<E>
     // implements javax.swing.ListModel
     @Override
     public void addListDataListener(ListDataListener l) {
-        if (getListDataListeners().length == 0) {
+        if (listenerList.isEmpty()) {
             super.sharedModel.addListDataListener(this);
         }
-        listenerList.add(ListDataListener.class, l);
+        listenerList.add(l);
     }
 
     // implements javax.swing.ListModel
     @Override
     public void removeListDataListener(ListDataListener l) {
-        listenerList.remove(ListDataListener.class, l);
-        if (getListDataListeners().length == 0) {
+        listenerList.remove(l);
+        if (listenerList.isEmpty()) {
             super.sharedModel.removeListDataListener(this);
         }
     }
 
     @Override
-    public void updating(State state, List<E> newItems, List<E> currentItems, E prototypeDisplayValue) {
+    public void updating(State state, UpdateContext<E> context) {
 
         if (UpdateListener.State.BEFORE_UPDATE.equals(state)) {
             int selectedObjIndex = -1;
@@ -238,8 +230,8 @@ public class AveSharedComboBoxModel<E> extends AveUpdatableSelection<E>
                 // "rename case" and the new item with the same index gets selected.
                 // This is a wanted behaviour and be enabled with allowOneMutation == true.
                 if (this.allowOneMutation) {
-                    selectedObjIndex = isOnlyOneMutation(newItems, currentItems)
-                            ? currentItems.indexOf(selectedObj) : -1;
+                    selectedObjIndex = context.isOnlyOneMutation()
+                            ? context.indexInCurrentItems(selectedObj) : -1;
                 }
 
                 // Force a deselection of the item since the index has changed but
@@ -247,15 +239,15 @@ public class AveSharedComboBoxModel<E> extends AveUpdatableSelection<E>
                 // Without the deselection no ItemChangeEvent would be fired.
                 if (this.forceDeselectionOnIndexChange == true
                         && super.isMatchSelectionByString() == true
-                        && newItems.indexOf(selectedObj) > 0
-                        && newItems.indexOf(selectedObj) != selectedObjIndex) {
+                        && context.indexInNewItems(selectedObj) > 0
+                        && context.indexInNewItems(selectedObj) != selectedObjIndex) {
                     setSelectedItem(null);
                 }
             }
 
             if (super.isMatchSelectionByString() == true) {
                 // If item exists also in updated items use its index
-                int indexInNewItems = newItems.indexOf(selectedObj);
+                int indexInNewItems = context.indexInNewItems(selectedObj);
                 // else fallback using the index of the selected item in the old list,
                 // if the size of both lists are equal, else give up.
                 selectedObjIndex = indexInNewItems > 0 ? indexInNewItems : selectedObjIndex;
@@ -263,10 +255,10 @@ public class AveSharedComboBoxModel<E> extends AveUpdatableSelection<E>
             selectedIndexBackup = selectedObjIndex;
 
         } else { // UpdateListener.State.AFTER_UPDATE
-            this.setPrototypeDisplayValue(prototypeDisplayValue);
+            this.setPrototypeDisplayValue(context.getPrototypeDisplayValue());
 
             if (selectedIndexBackup >= 0 && selectedIndexBackup < this.getSize()) {
-                setSelectedItem(newItems.get(selectedIndexBackup));
+                setSelectedItem(context.getNewItems().get(selectedIndexBackup));
             } else {
                 setSelectedItem(null);
             }
@@ -280,6 +272,11 @@ public class AveSharedComboBoxModel<E> extends AveUpdatableSelection<E>
 
     @Override
     public void intervalRemoved(ListDataEvent e) {
+        // While the shared model is being updated, the selection is restored in updating(AFTER_UPDATE).
+        if (super.sharedModel.isUpdating()) {
+            this.fireIntervalRemoved(this, e.getIndex0(), e.getIndex1());
+            return;
+        }
         int index = super.sharedModel.getIndexOf(super.getSelectedItem());
         if (index >= 0 && index >= e.getIndex0() && index <= e.getIndex1()) {
             setSelectedItem(getSelectedItem());
@@ -305,7 +302,7 @@ public class AveSharedComboBoxModel<E> extends AveUpdatableSelection<E>
      * @see #removeListDataListener
      */
     public ListDataListener[] getListDataListeners() {
-        return listenerList.getListeners(ListDataListener.class);
+        return listenerList.toArray();
     }
 
     /**
@@ -318,20 +315,19 @@ public class AveSharedComboBoxModel<E> extends AveUpdatableSelection<E>
      * @param source the <code>ListModel</code> that changed, typically "this"
      * @param index0 one end of the new interval
      * @param index1 the other end of the new interval
-     * @see EventListenerList
+     * @see SnapshotListenerList
      * @see DefaultListModel
      */
     protected void fireContentsChanged(Object source, int index0, int index1) {
-        Object[] listeners = listenerList.getListenerList();
+        final ListDataListener[] listeners = listenerList.snapshot();
         ListDataEvent e = null;
 
-        for (int i = listeners.length - 2; i >= 0; i -= 2) {
-            if (listeners[i] == ListDataListener.class) {
-                if (e == null) {
-                    e = new ListDataEvent(source, ListDataEvent.CONTENTS_CHANGED, index0, index1);
-                }
-                ((ListDataListener) listeners[i + 1]).contentsChanged(e);
+        // Notify in reverse order of registration, as javax.swing.AbstractListModel does.
+        for (int i = listeners.length - 1; i >= 0; i--) {
+            if (e == null) {
+                e = new ListDataEvent(source, ListDataEvent.CONTENTS_CHANGED, index0, index1);
             }
+            listeners[i].contentsChanged(e);
         }
     }
 
@@ -345,20 +341,19 @@ public class AveSharedComboBoxModel<E> extends AveUpdatableSelection<E>
      * @param source the <code>ListModel</code> that changed, typically "this"
      * @param index0 one end of the new interval
      * @param index1 the other end of the new interval
-     * @see EventListenerList
+     * @see SnapshotListenerList
      * @see DefaultListModel
      */
     protected void fireIntervalAdded(Object source, int index0, int index1) {
-        Object[] listeners = listenerList.getListenerList();
+        final ListDataListener[] listeners = listenerList.snapshot();
         ListDataEvent e = null;
 
-        for (int i = listeners.length - 2; i >= 0; i -= 2) {
-            if (listeners[i] == ListDataListener.class) {
-                if (e == null) {
-                    e = new ListDataEvent(source, ListDataEvent.INTERVAL_ADDED, index0, index1);
-                }
-                ((ListDataListener) listeners[i + 1]).intervalAdded(e);
+        // Notify in reverse order of registration, as javax.swing.AbstractListModel does.
+        for (int i = listeners.length - 1; i >= 0; i--) {
+            if (e == null) {
+                e = new ListDataEvent(source, ListDataEvent.INTERVAL_ADDED, index0, index1);
             }
+            listeners[i].intervalAdded(e);
         }
     }
 
@@ -374,20 +369,19 @@ public class AveSharedComboBoxModel<E> extends AveUpdatableSelection<E>
      * <code>index0</code>
      * @param index1 the other end of the removed interval, including
      * <code>index1</code>
-     * @see EventListenerList
+     * @see SnapshotListenerList
      * @see DefaultListModel
      */
     protected void fireIntervalRemoved(Object source, int index0, int index1) {
-        Object[] listeners = listenerList.getListenerList();
+        final ListDataListener[] listeners = listenerList.snapshot();
         ListDataEvent e = null;
 
-        for (int i = listeners.length - 2; i >= 0; i -= 2) {
-            if (listeners[i] == ListDataListener.class) {
-                if (e == null) {
-                    e = new ListDataEvent(source, ListDataEvent.INTERVAL_REMOVED, index0, index1);
-                }
-                ((ListDataListener) listeners[i + 1]).intervalRemoved(e);
+        // Notify in reverse order of registration, as javax.swing.AbstractListModel does.
+        for (int i = listeners.length - 1; i >= 0; i--) {
+            if (e == null) {
+                e = new ListDataEvent(source, ListDataEvent.INTERVAL_REMOVED, index0, index1);
             }
+            listeners[i].intervalRemoved(e);
         }
     }
 
@@ -419,8 +413,12 @@ public class AveSharedComboBoxModel<E> extends AveUpdatableSelection<E>
      *
      * @see #getListDataListeners
      */
+    @SuppressWarnings("unchecked")
     public <T extends EventListener> T[] getListeners(Class<T> listenerType) {
-        return listenerList.getListeners(listenerType);
+        if (listenerType == ListDataListener.class) {
+            return (T[]) listenerList.toArray();
+        }
+        return (T[]) Array.newInstance(listenerType, 0);
     }
 
 }
@@ -1,10 +1,18 @@
 package de.joergwille.playground.shareddatamodel.swing.model;
 
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
 import java.io.Serializable;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import javax.swing.JLabel;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutionException;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 
 /**
  * AveSharedDataModel is the data model which stores the values being used in
@@ -12,7 +20,16 @@ import javax.swing.JLabel;
  * with multiple {@link AveSharedComboBoxModel}, which themselves are used as
  * model in {@link JComboBox}. If updates occur to
  * <i>AveSharedDataModel</i> all instances of <i>JComboBox</i> get
- * updated.
+ * updated.<br>
+ * In weak listener mode, which is off by default, {@link UpdateListener} and
+ * {@link AveUpdatableSelection} registered afterwards are only referenced
+ * weakly. Listeners which have been garbage collected without being removed
+ * are purged on the next registration or update, so a long living shared
+ * model does not keep discarded tables reachable.<br>
+ * In asynchronous prototype mode the widest string is measured on a worker
+ * thread. Until it is known, the longest string is used as an estimate,
+ * which is tracked incrementally. All changes of one EDT cycle are measured
+ * together.
  *
  * @author willejoerg
  * @param <E>
@@ -21,9 +38,110 @@ import javax.swing.JLabel;
 public class AveSharedDataModel<E> extends AbstractUniqueIterableDataModel<E>
         implements Serializable, UpdateObservable<E> {
 
-    private List<UpdateListener<E>> updateListeners;
+    private final SnapshotListenerList<UpdateListener<E>> updateListeners;
+    private final SelectionRegistry<E> selectionRegistry;
     private boolean autoSetPrototypeDisplayValue;
+    private transient WidestStringTracker widestStringTracker; // only maintained if autoSetPrototypeDisplayValue is used
+    private transient WidestStringTracker longestStringTracker; // only maintained in asynchronous prototype mode
+    private transient E renderingPrototype; // measured once without autoSetPrototypeDisplayValue, null after a change
+    private transient Font renderingPrototypeFont;
+    private transient boolean measurementScheduled;
+    private boolean asyncPrototypeDisplayValue;
+    private transient PrototypeDisplayValueWorker prototypeDisplayValueWorker;
+    private int prototypeDisplayValueGeneration; // incremented whenever the items to be measured change
     private E prototypeDisplayValue;
+    private boolean updating;
+    private boolean weakListeners;
+    private long purgedListenerCount;
+    private transient ReferenceQueue<Object> staleListeners;
+    private transient Map<UpdateListener<E>, WeakUpdateListener<E>> weakUpdateListeners;
+
+    /**
+     * Delegates to an {@link UpdateListener} which is only referenced weakly.
+     */
+    private static final class WeakUpdateListener<E> implements UpdateListener<E> {
+
+        private final ListenerReference<UpdateListener<E>> reference;
+
+        WeakUpdateListener(UpdateListener<E> listener, ReferenceQueue<Object> queue,
+                SnapshotListenerList<UpdateListener<E>> updateListeners) {
+            this.reference = new ListenerReference<UpdateListener<E>>(listener, queue) {
+                @Override
+                boolean purge() {
+                    return updateListeners.remove(WeakUpdateListener.this);
+                }
+            };
+        }
+
+        @Override
+        public void updating(State state, List<E> newItems, List<E> currentItems, E prototypeDisplayValue) {
+            this.updating(state, new UpdateContext<>(newItems, currentItems, prototypeDisplayValue));
+        }
+
+        @Override
+        public void updating(State state, UpdateContext<E> context) {
+            final UpdateListener<E> listener = this.reference.get();
+            if (listener != null) {
+                listener.updating(state, context);
+            }
+        }
+
+        @Override
+        public void prototypeDisplayValueChanged(E prototypeDisplayValue) {
+            final UpdateListener<E> listener = this.reference.get();
+            if (listener != null) {
+                listener.prototypeDisplayValueChanged(prototypeDisplayValue);
+            }
+        }
+    }
+
+    /**
+     * Measures a snapshot of the items off the EDT and publishes the widest
+     * one as PrototypeDisplayValue on the EDT, if the items have not changed
+     * meanwhile. Otherwise a new measurement is started.
+     */
+    private final class PrototypeDisplayValueWorker extends SwingWorker<String, Void> {
+
+        private final List<String> strings;
+        private final Font font;
+        private final FontRenderContext fontRenderContext;
+        private final int generation;
+
+        PrototypeDisplayValueWorker(List<String> strings, int generation) {
+            this.strings = strings;
+            // Take a snapshot of the font and its FontRenderContext on the EDT.
+            this.font = WidestStringTracker.currentFont();
+            this.fontRenderContext = TextWidthCache.fontMetricsFor(this.font).getFontRenderContext();
+            this.generation = generation;
+        }
+
+        @Override
+        protected String doInBackground() {
+            return WidestStringTracker.widestOf(this.strings, this.font, this.fontRenderContext);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void done() {
+            if (prototypeDisplayValueWorker != this) {
+                return;
+            }
+            prototypeDisplayValueWorker = null;
+            if (isCancelled() || !autoSetPrototypeDisplayValue || !asyncPrototypeDisplayValue) {
+                return;
+            }
+            if (this.generation != prototypeDisplayValueGeneration) {
+                scheduleMeasurement();
+                return;
+            }
+            try {
+                setPrototypeDisplayValue((E) get());
+            } catch (InterruptedException | ExecutionException ex) {
+                return;
+            }
+            firePrototypeDisplayValueChanged();
+        }
+    }
 
     public AveSharedDataModel() {
         this((List<E>) null);
@@ -47,56 +165,87 @@ public class AveSharedDataModel<E> extends AbstractUniqueIterableDataModel<E>
 
     public AveSharedDataModel(final List<E> initial, boolean autoSetPrototypeDisplayValue) {
         super(initial);
-        this.updateListeners = new ArrayList<>();
+        this.updateListeners = newUpdateListenerList();
+        this.selectionRegistry = new SelectionRegistry<>();
         this.autoSetPrototypeDisplayValue = autoSetPrototypeDisplayValue;
-        this.setPrototypeDisplayValue((this.autoSetPrototypeDisplayValue) ? this.autoSetPrototypeDisplayValue(initial) : null);
+        this.updatePrototypeDisplayValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> SnapshotListenerList<UpdateListener<E>> newUpdateListenerList() {
+        return new SnapshotListenerList<>((Class<UpdateListener<E>>) (Class<?>) UpdateListener.class);
     }
 
     public void addElement(E item) {
         super.add(item);
-        this.setPrototypeDisplayValue((this.autoSetPrototypeDisplayValue) ? this.autoSetPrototypeDisplayValue(super.toList()) : null);
+        this.updatePrototypeDisplayValue();
     }
 
     public void removeElement(Object obj) {
         super.remove(obj);
-        this.setPrototypeDisplayValue((this.autoSetPrototypeDisplayValue) ? this.autoSetPrototypeDisplayValue(super.toList()) : null);
+        this.updatePrototypeDisplayValue();
     }
 
     @SuppressWarnings("unchecked")
     public boolean update(List<E> newItems) {
+        this.purgeStaleListeners();
+
         // get a copy of the current elements in the set as an ArrayList
         final List<E> currentItems = super.toList();
 
         // check if updated list is different from original list or no listeners are registered.
 //        if (this.updateListeners.isEmpty() || (newItems.size() == currentItems.size() && newItems.containsAll(currentItems) && currentItems.containsAll(newItems))) {
-        if (this.updateListeners.isEmpty() || (newItems.equals(currentItems))) {
+        if ((this.updateListeners.isEmpty() && this.selectionRegistry.size() == 0) || (newItems.equals(currentItems))) {
             return false;
         }
         if (newItems.isEmpty()) {
             clear();
+            this.setPrototypeDisplayValue(null);
             return true;
         }
-        
-        // get the PrototypeDisplayValue for optimizing drawing in BasicComboBoxUI
-        this.setPrototypeDisplayValue((this.autoSetPrototypeDisplayValue) ? this.autoSetPrototypeDisplayValue(newItems) : null);
 
-        this.updateListeners.forEach((updateListener) -> {
-            updateListener.updating(UpdateListener.State.BEFORE_UPDATE, newItems, currentItems, this.getPrototypeDisplayValue());
-        });
+        // The item to index maps of the context are built once and shared by all listeners.
+        final UpdateContext<E> context = new UpdateContext<>(newItems, currentItems, this.getPrototypeDisplayValue());
 
-        boolean isEnabled = super.isEnabled();
-        super.setEnabled(false);
-        super.clear();
-        super.addAll(newItems);
-        super.setEnabled(isEnabled);
+        this.selectionRegistry.updating(UpdateListener.State.BEFORE_UPDATE, context);
+        // Listeners which add or remove listeners while being notified do not affect the snapshot.
+        for (UpdateListener<E> updateListener : this.updateListeners.snapshot()) {
+            updateListener.updating(UpdateListener.State.BEFORE_UPDATE, context);
+        }
 
-        this.updateListeners.forEach((updateListener) -> {
-            updateListener.updating(UpdateListener.State.AFTER_UPDATE, newItems, currentItems, prototypeDisplayValue);
-        });
+        // Apply only the differences between current and new items, which fires events for the changed ranges only.
+        this.updating = true;
+        try {
+            super.replaceAllElements(newItems);
+        } finally {
+            this.updating = false;
+        }
+
+        // get the PrototypeDisplayValue for optimizing drawing in BasicComboBoxUI, the widest string is tracked incrementally.
+        this.updatePrototypeDisplayValue();
+        context.setPrototypeDisplayValue(this.getPrototypeDisplayValue());
+
+        // Resolve all selections in one pass before other listeners see the updated items.
+        this.selectionRegistry.updating(UpdateListener.State.AFTER_UPDATE, context);
+        for (UpdateListener<E> updateListener : this.updateListeners.snapshot()) {
+            updateListener.updating(UpdateListener.State.AFTER_UPDATE, context);
+        }
 
         return true;
     }
 
+    /**
+     * Returns <i>true</i> while the items are being replaced in
+     * {@link #update(List)}, that is after all {@link UpdateListener} have
+     * been informed with <i>BEFORE_UPDATE</i> and before they are informed
+     * with <i>AFTER_UPDATE</i>.
+     *
+     * @return <i>true</i> if an update is in progress.
+     */
+    public boolean isUpdating() {
+        return this.updating;
+    }
+
     @Override
     public void insertElementAt(E item, int index) {
         throw new UnsupportedOperationException("'insertElementAt' is not yet implemented inn 'AveSharedDataModel'.");
@@ -109,14 +258,122 @@ public class AveSharedDataModel<E> extends AbstractUniqueIterableDataModel<E>
         //super.remove(index);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * In weak listener mode the listener is only referenced weakly, so the
+     * caller must keep a reference to it as long as it should be informed. A
+     * lambda which is not referenced elsewhere is collected immediately.
+     */
     @Override
     public void addUpdateListener(UpdateListener<E> listener) {
-        updateListeners.add(listener);
+        this.purgeStaleListeners();
+        if (listener == null || this.updateListeners.contains(listener)
+                || (this.weakUpdateListeners != null && this.weakUpdateListeners.containsKey(listener))) {
+            return;
+        }
+        if (this.weakListeners) {
+            if (this.weakUpdateListeners == null) {
+                this.weakUpdateListeners = new WeakHashMap<>();
+            }
+            final WeakUpdateListener<E> weakListener
+                    = new WeakUpdateListener<>(listener, this.staleListenerQueue(), this.updateListeners);
+            this.weakUpdateListeners.put(listener, weakListener);
+            this.updateListeners.add(weakListener);
+        } else {
+            this.updateListeners.add(listener);
+        }
     }
 
     @Override
     public void removeUpdateListener(UpdateListener<E> listener) {
-        updateListeners.remove(listener);
+        this.purgeStaleListeners();
+        if (!this.updateListeners.remove(listener) && this.weakUpdateListeners != null) {
+            final WeakUpdateListener<E> weakListener = this.weakUpdateListeners.remove(listener);
+            if (weakListener != null) {
+                // A cleared reference is not enqueued anymore, so it is not counted as purged.
+                weakListener.reference.clear();
+                this.updateListeners.remove(weakListener);
+            }
+        }
+    }
+
+    /**
+     * Registers a selection in the {@link SelectionRegistry} of this model.
+     * The registry is informed once per update instead of registering each
+     * selection as a separate {@link UpdateListener}.
+     *
+     * @param selection the selection to be registered.
+     */
+    void registerSelection(AveUpdatableSelection<E> selection) {
+        this.purgeStaleListeners();
+        this.selectionRegistry.register(selection, this.weakListeners ? this.staleListenerQueue() : null);
+    }
+
+    void unregisterSelection(AveUpdatableSelection<E> selection) {
+        this.purgeStaleListeners();
+        this.selectionRegistry.unregister(selection);
+    }
+
+    /**
+     * Returns <i>true</i> if listeners and selections are only referenced
+     * weakly.
+     *
+     * @return <i>true</i> if weak listener mode is enabled.
+     */
+    public boolean isWeakListeners() {
+        return this.weakListeners;
+    }
+
+    /**
+     * Enables or disables the weak listener mode. The mode applies to
+     * {@link UpdateListener} and {@link AveUpdatableSelection} which are
+     * registered afterwards, already registered listeners keep the mode they
+     * were registered with.
+     *
+     * @param weakListeners <i>true</i> to reference listeners only weakly.
+     */
+    public void setWeakListeners(boolean weakListeners) {
+        this.weakListeners = weakListeners;
+    }
+
+    /**
+     * Returns the number of weakly referenced listeners and selections which
+     * have been removed after being garbage collected.
+     *
+     * @return the number of purged listeners.
+     */
+    public long getPurgedListenerCount() {
+        return this.purgedListenerCount;
+    }
+
+    /**
+     * Removes all weakly referenced listeners and selections which have been
+     * garbage collected. This is done implicitly on each registration and
+     * update.
+     *
+     * @return the number of listeners purged by this call.
+     */
+    public int purgeStaleListeners() {
+        if (this.staleListeners == null) {
+            return 0;
+        }
+        int purged = 0;
+        Reference<?> reference;
+        while ((reference = this.staleListeners.poll()) != null) {
+            if (((ListenerReference<?>) reference).purge()) {
+                purged++;
+            }
+        }
+        this.purgedListenerCount += purged;
+        return purged;
+    }
+
+    private ReferenceQueue<Object> staleListenerQueue() {
+        if (this.staleListeners == null) {
+            this.staleListeners = new ReferenceQueue<>();
+        }
+        return this.staleListeners;
     }
 
     public E getPrototypeDisplayValue() {
@@ -127,39 +384,205 @@ public class AveSharedDataModel<E> extends AbstractUniqueIterableDataModel<E>
         this.prototypeDisplayValue = prototypeDisplayValue;
     }
 
+    /**
+     * Returns the item, which determines the width of a component showing
+     * any item of this model. It is the PrototypeDisplayValue, if there is
+     * one, otherwise the widest item. If <i>autoSetPrototypeDisplayValue</i>
+     * is used, the widest item is tracked incrementally, otherwise it is
+     * measured once and measured again only after the items or the font
+     * changed, so a mutation only discards the measured item. It does not
+     * depend on the item being shown.
+     *
+     * @return the prototype or <i>null</i> if the model is empty.
+     */
+    @SuppressWarnings("unchecked")
+    E getRenderingPrototype() {
+        if (this.prototypeDisplayValue != null) {
+            return this.prototypeDisplayValue;
+        }
+        if (this.autoSetPrototypeDisplayValue) {
+            return this.autoSetPrototypeDisplayValue();
+        }
+        if (super.size() <= 1 || !(super.get(0) instanceof String)) {
+            return super.isEmpty() ? null : super.get(0);
+        }
+        final Font font = WidestStringTracker.currentFont();
+        if (this.renderingPrototype == null || !font.equals(this.renderingPrototypeFont)) {
+            final List<String> strings = new ArrayList<>(super.size());
+            for (E item : this) {
+                if (item instanceof String) {
+                    strings.add((String) item);
+                }
+            }
+            this.renderingPrototype = (E) WidestStringTracker.widestOf(strings, font,
+                    TextWidthCache.fontMetricsFor(font).getFontRenderContext());
+            this.renderingPrototypeFont = font;
+        }
+        return this.renderingPrototype;
+    }
+
     public boolean isAutoSetPrototypeDisplayValue() {
         return autoSetPrototypeDisplayValue;
     }
 
     public void setAutoSetPrototypeDisplayValue(boolean autoSetPrototypeDisplayValue) {
         this.autoSetPrototypeDisplayValue = autoSetPrototypeDisplayValue;
+        if (!autoSetPrototypeDisplayValue) {
+            this.widestStringTracker = null;
+            this.longestStringTracker = null;
+        }
     }
-    
-    private static String getWidestOfStrings(List<String> strings) {
-        final JLabel label = new JLabel();
-        int maxWidth = 0;
-        String maxString = null;
-        for (final String aString : strings) {
-            label.setText(aString);
-            final int width = label.getPreferredSize().width;
-            if (width > maxWidth) {
-                maxString = aString;
-                maxWidth = width;
+
+    public boolean isAsyncPrototypeDisplayValue() {
+        return asyncPrototypeDisplayValue;
+    }
+
+    /**
+     * Enables or disables measuring the PrototypeDisplayValue on a worker
+     * thread, if <i>autoSetPrototypeDisplayValue</i> is set. While the
+     * measurement is running, the longest string is used as an estimate. Once
+     * done, the widest string is set on the EDT and all {@link UpdateListener}
+     * are informed by
+     * {@link UpdateListener#prototypeDisplayValueChanged(Object)}.
+     *
+     * @param asyncPrototypeDisplayValue <i>true</i> to measure in the
+     * background.
+     */
+    public void setAsyncPrototypeDisplayValue(boolean asyncPrototypeDisplayValue) {
+        this.asyncPrototypeDisplayValue = asyncPrototypeDisplayValue;
+        if (asyncPrototypeDisplayValue) {
+            this.widestStringTracker = null;
+        } else {
+            this.longestStringTracker = null;
+            if (this.prototypeDisplayValueWorker != null) {
+                this.prototypeDisplayValueWorker.cancel(true);
+                this.prototypeDisplayValueWorker = null;
+            }
+        }
+    }
+
+    // In asynchronous mode the current prototype is kept until the measurement is done, unless it has been removed or
+    // a longer string has been added.
+    private void updatePrototypeDisplayValue() {
+        if (!this.autoSetPrototypeDisplayValue) {
+            this.setPrototypeDisplayValue(null);
+        } else if (!this.asyncPrototypeDisplayValue || super.size() <= 1 || !(super.get(0) instanceof String)) {
+            this.setPrototypeDisplayValue(this.autoSetPrototypeDisplayValue());
+        } else {
+            this.prototypeDisplayValueGeneration++;
+            final E current = this.getPrototypeDisplayValue();
+            final E estimate = this.estimatePrototypeDisplayValue();
+            if (!(current instanceof String) || !super.contains(current)
+                    || (estimate != null && ((String) estimate).length() > ((String) current).length())) {
+                this.setPrototypeDisplayValue(estimate);
+            }
+            this.scheduleMeasurement();
+        }
+    }
+
+    // Uses the longest string as a cheap estimate of the widest string, it is tracked in O(log n) per change.
+    @SuppressWarnings("unchecked")
+    private E estimatePrototypeDisplayValue() {
+        if (this.longestStringTracker == null) {
+            this.longestStringTracker = new WidestStringTracker(true);
+            for (E item : this) {
+                if (item instanceof String) {
+                    this.longestStringTracker.add((String) item);
+                }
+            }
+        }
+        return (E) this.longestStringTracker.getWidest();
+    }
+
+    // Starts a measurement later on the EDT, so all changes of one EDT cycle are measured with a single snapshot.
+    private void scheduleMeasurement() {
+        if (this.prototypeDisplayValueWorker == null && !this.measurementScheduled) {
+            this.measurementScheduled = true;
+            SwingUtilities.invokeLater(this::measurePrototypeDisplayValue);
+        }
+    }
+
+    // Starts measuring a snapshot of the items, a running measurement restarts itself when done.
+    private void measurePrototypeDisplayValue() {
+        this.measurementScheduled = false;
+        if (!this.autoSetPrototypeDisplayValue || !this.asyncPrototypeDisplayValue
+                || this.prototypeDisplayValueWorker != null) {
+            return;
+        }
+        final List<String> strings = new ArrayList<>(super.size());
+        for (E item : this) {
+            if (item instanceof String) {
+                strings.add((String) item);
             }
         }
-        return maxString;
+        this.prototypeDisplayValueWorker = new PrototypeDisplayValueWorker(strings, this.prototypeDisplayValueGeneration);
+        this.prototypeDisplayValueWorker.execute();
+    }
+
+    private void firePrototypeDisplayValueChanged() {
+        final E prototype = this.getPrototypeDisplayValue();
+        this.selectionRegistry.prototypeDisplayValueChanged(prototype);
+        for (UpdateListener<E> updateListener : this.updateListeners.snapshot()) {
+            updateListener.prototypeDisplayValueChanged(prototype);
+        }
     }
     
+    // Returns the tracker of the widest string, which is built on first use.
+    private WidestStringTracker widestStringTracker() {
+        if (this.widestStringTracker == null) {
+            this.widestStringTracker = new WidestStringTracker();
+            for (E item : this) {
+                if (item instanceof String) {
+                    this.widestStringTracker.add((String) item);
+                }
+            }
+        }
+        return this.widestStringTracker;
+    }
+
+    @Override
+    protected void elementAdded(E element) {
+        this.renderingPrototype = null;
+        if (this.widestStringTracker != null && element instanceof String) {
+            this.widestStringTracker.add((String) element);
+        }
+        if (this.longestStringTracker != null && element instanceof String) {
+            this.longestStringTracker.add((String) element);
+        }
+    }
+
+    @Override
+    protected void elementRemoved(E element) {
+        this.renderingPrototype = null;
+        if (this.widestStringTracker != null && element instanceof String) {
+            this.widestStringTracker.remove((String) element);
+        }
+        if (this.longestStringTracker != null && element instanceof String) {
+            this.longestStringTracker.remove((String) element);
+        }
+    }
+
+    @Override
+    protected void elementsCleared() {
+        this.renderingPrototype = null;
+        if (this.widestStringTracker != null) {
+            this.widestStringTracker.clear();
+        }
+        if (this.longestStringTracker != null) {
+            this.longestStringTracker.clear();
+        }
+    }
+
     @SuppressWarnings("unchecked")
-    private E autoSetPrototypeDisplayValue(List<E> items) {
-        if (items == null || items.isEmpty()) {
+    private E autoSetPrototypeDisplayValue() {
+        if (super.isEmpty()) {
             return null;
         }
-        if (items.size() ==  1) {
-            return items.get(0);
+        if (super.size() == 1) {
+            return super.get(0);
         }
-        if (items.get(0) instanceof String) {
-            return (E) getWidestOfStrings((List<String>) items);
+        if (super.get(0) instanceof String) {
+            return (E) this.widestStringTracker().getWidest();
         }
         return null;
     }
@@ -14,6 +14,7 @@ import javax.swing.SwingUtilities;
 import javax.swing.border.Border;
 import javax.swing.event.CellEditorListener;
 import javax.swing.event.ChangeEvent;
+import javax.swing.event.TableModelEvent;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.TableCellRenderer;
 import javax.swing.table.TableColumn;
@@ -37,13 +38,14 @@ public class AveTable extends JTable {
     public static final int DEFAULT_VISIBLE_ROW_COUNT = 1;
     private final MinWidthHeaderRenderer minWidthHeaderRenderer;
     private final MouseListener tableHeaderMouseListener;
+    private final ColumnWidthManager columnWidthManager;
 
     private boolean autoResizeMode; // hides field in JTable
     private int visibleRowCount;
     private int viewportHeightMargin;
     private AveTableRowEntry rowPrototype;
     private int lastColumnExtraWidth;
-    private int[] stringColumnsBestWidth;
+    private ColumnWidthHistogram[] stringColumnsWidths;
     private int minimumViewportWidth;
 
     public AveTable(final TableModel tableModel) {
@@ -70,6 +72,7 @@ public class AveTable extends JTable {
         super(tableModel);
         this.minWidthHeaderRenderer = new MinWidthHeaderRenderer(this, columnHeaderPadding, separatorColumn, isPlainFont ? super.getFont().deriveFont(Font.PLAIN) : null);
         this.tableHeaderMouseListener = new TableHeaderMouseListener(this);
+        this.columnWidthManager = new ColumnWidthManager(this);
 
         this.visibleRowCount = visibleRowCount >= 0 ? visibleRowCount : tableModel.getRowCount();
         this.viewportHeightMargin = viewportHeightMargin;
@@ -80,9 +83,9 @@ public class AveTable extends JTable {
         // Initially empty. Value gets set in setLastColumnExtraWidth() to add extra width for lastColumn tableColumn, e.g. to gain space for vertical ScrollBar.
         this.lastColumnExtraWidth = 0;
 
-        // Instantiate and initialize an array to store the widest string width for String columns, similar to ChoiceElement columns whic use PrototypeDisplayValue.
-        this.stringColumnsBestWidth = new int[tableModel.getColumnCount()];
-        Arrays.fill(this.stringColumnsBestWidth, -1);
+        // Instantiate an array to track the cell widths of String columns, similar to ChoiceElement columns whic use PrototypeDisplayValue.
+        // The histogram of a column is only created, when its best width is needed for the first time.
+        this.stringColumnsWidths = new ColumnWidthHistogram[tableModel.getColumnCount()];
 
         // JTable uses default Dimension(450, 400) for PreferredScrollableViewportSize. Do not use these.
         super.setPreferredScrollableViewportSize(null);
@@ -114,31 +117,134 @@ public class AveTable extends JTable {
 
     private void addListener() {
         super.getTableHeader().addMouseListener(this.tableHeaderMouseListener);
+        super.getColumnModel().addColumnModelListener(this.columnWidthManager);
+        this.columnWidthManager.invalidate();
     }
 
     private void removeListener() {
         super.getTableHeader().removeMouseListener(this.tableHeaderMouseListener);
+        super.getColumnModel().removeColumnModelListener(this.columnWidthManager);
+        this.columnWidthManager.removeNotify();
     }
 
-    // Calculate the number of pixels for the widest string in a column.
-    private int calculateStringColumnsBestWidth(int columnIdx) {
-        int stringColumnWidth = 0;
-        if (super.getColumnClass(columnIdx).equals(String.class)) {
-            for (int rowIdx = 0; rowIdx < super.getRowCount(); rowIdx++) {
-                final String string = (String) super.getModel().getValueAt(rowIdx, columnIdx);
-                final Component rendererComponent
-                        = this.getCellRenderer(rowIdx, columnIdx)
-                                .getTableCellRendererComponent(this, string, false, false, rowIdx, columnIdx);
-                if (rendererComponent instanceof JLabel) {
-                    final JLabel label = (JLabel) rendererComponent;
-                    final int prefColumnWidth = label.getPreferredSize().width
-                            + label.getInsets().left + label.getInsets().right;
-                    stringColumnWidth = Math.max(stringColumnWidth, prefColumnWidth);
+    /**
+     * Invoked when the table model has changed. Besides the default behaviour
+     * of <code>JTable</code> a width pass for the columns is scheduled. The
+     * tracked cell widths of String columns are only updated for the inserted,
+     * deleted or updated rows, so the widest string of a column is known
+     * without measuring all of its cells again.
+     *
+     * @param e a <code>TableModelEvent</code> encapsulating changes
+     */
+    @Override
+    public void tableChanged(TableModelEvent e) {
+        super.tableChanged(e);
+        // Called by the constructor of JTable before this table is initialized.
+        if (this.columnWidthManager == null) {
+            return;
+        }
+        if (e == null || e.getFirstRow() == TableModelEvent.HEADER_ROW
+                || this.stringColumnsWidths.length != super.getColumnCount()) {
+            this.stringColumnsWidths = new ColumnWidthHistogram[super.getColumnCount()];
+        } else {
+            final int firstColumn = e.getColumn() == TableModelEvent.ALL_COLUMNS ? 0 : e.getColumn();
+            final int lastColumn = e.getColumn() == TableModelEvent.ALL_COLUMNS
+                    ? this.stringColumnsWidths.length - 1 : Math.min(e.getColumn(), this.stringColumnsWidths.length - 1);
+            for (int columnIdx = firstColumn; columnIdx <= lastColumn; columnIdx++) {
+                if (this.stringColumnsWidths[columnIdx] != null
+                        && !this.updateStringColumnWidths(this.stringColumnsWidths[columnIdx], e, columnIdx)) {
+                    // The histogram can not be updated incrementally, so it is measured again when needed.
+                    this.stringColumnsWidths[columnIdx] = null;
                 }
             }
         }
-        this.stringColumnsBestWidth[columnIdx] = stringColumnWidth;
-        return stringColumnWidth;
+        this.columnWidthManager.invalidate();
+    }
+
+    // Applies the rows of a TableModelEvent to the histogram of a column and returns false, if this is not possible.
+    private boolean updateStringColumnWidths(final ColumnWidthHistogram widths, final TableModelEvent e, int columnIdx) {
+        final int firstRow = e.getFirstRow();
+        final int lastRow = e.getLastRow();
+        final int rowCount = super.getModel().getRowCount();
+        switch (e.getType()) {
+            case TableModelEvent.INSERT:
+                // The class of a column is derived from its first row, so it might change once the first row is added.
+                if (widths.getRowCount() == 0 || lastRow - firstRow + 1 + widths.getRowCount() != rowCount) {
+                    return false;
+                }
+                final int[] insertedWidths = new int[lastRow - firstRow + 1];
+                for (int rowIdx = firstRow; rowIdx <= lastRow; rowIdx++) {
+                    insertedWidths[rowIdx - firstRow] = this.calculateStringCellWidth(rowIdx, columnIdx);
+                }
+                widths.insertRows(firstRow, insertedWidths);
+                return true;
+            case TableModelEvent.DELETE:
+                if (widths.getRowCount() - (lastRow - firstRow + 1) != rowCount) {
+                    return false;
+                }
+                widths.deleteRows(firstRow, lastRow);
+                return true;
+            default:
+                // fireTableDataChanged() does not tell which rows have changed.
+                if (lastRow == Integer.MAX_VALUE || widths.getRowCount() != rowCount) {
+                    return false;
+                }
+                for (int rowIdx = firstRow; rowIdx <= lastRow; rowIdx++) {
+                    widths.updateRow(rowIdx, this.calculateStringCellWidth(rowIdx, columnIdx));
+                }
+                return true;
+        }
+    }
+
+    /**
+     * Schedules a width pass for all columns. Column widths are never changed
+     * while cells are being painted, instead all requests of one EDT cycle
+     * are coalesced into a single pass.
+     */
+    public void invalidateColumnWidths() {
+        this.columnWidthManager.invalidate();
+    }
+
+    // Returns the minimum width of a column as requested by the header renderer.
+    int getHeaderMinimumWidth(int columnIdx) {
+        return this.minWidthHeaderRenderer.getColumnMinimumWidth(this, columnIdx);
+    }
+
+    // Calculate the number of pixels for the widest string in a column by measuring all of its cells.
+    int calculateStringColumnsBestWidth(int columnIdx) {
+        if (super.getModel() instanceof AveVirtualTableModel) {
+            // Measuring all cells would create all rows, so only the rows held by the model are measured. The result
+            // is not kept, the next width pass measures the rows held by then.
+            int bestWidth = 0;
+            for (int rowIdx : ((AveVirtualTableModel) super.getModel()).getMaterializedRows()) {
+                bestWidth = Math.max(bestWidth, this.calculateStringCellWidth(rowIdx, columnIdx));
+            }
+            return bestWidth;
+        }
+        final int[] cellWidths = new int[super.getModel().getRowCount()];
+        for (int rowIdx = 0; rowIdx < cellWidths.length; rowIdx++) {
+            cellWidths[rowIdx] = this.calculateStringCellWidth(rowIdx, columnIdx);
+        }
+        final ColumnWidthHistogram widths = new ColumnWidthHistogram();
+        widths.insertRows(0, cellWidths);
+        this.stringColumnsWidths[columnIdx] = widths;
+        return widths.getBestWidth();
+    }
+
+    // Calculate the number of pixels for the string in a cell or 0, if the column is not a String column.
+    private int calculateStringCellWidth(int rowIdx, int columnIdx) {
+        if (!super.getColumnClass(columnIdx).equals(String.class)) {
+            return 0;
+        }
+        final String string = (String) super.getModel().getValueAt(rowIdx, columnIdx);
+        final Component rendererComponent
+                = this.getCellRenderer(rowIdx, columnIdx)
+                        .getTableCellRendererComponent(this, string, false, false, rowIdx, columnIdx);
+        if (rendererComponent instanceof JLabel) {
+            final JLabel label = (JLabel) rendererComponent;
+            return TextWidthCache.getInstance().preferredWidth(label) + label.getInsets().left + label.getInsets().right;
+        }
+        return 0;
     }
 
     /**
@@ -153,9 +259,7 @@ public class AveTable extends JTable {
         this.removeListener();
 
         // clean up all rows, which themselves can clean up all listeners.
-        for (int i = 0; i < this.getModel().getRowCount(); i++) {
-            this.getModel().removeRow(i);
-        }
+        this.getModel().removeNotify();
     }
 
     /**
@@ -182,12 +286,12 @@ public class AveTable extends JTable {
      * Returns the {@code TableModel} that provides the data displayed by this
      * {@code JTable}.
      *
-     * @return the {@code AveTableModel} that provides the data displayed by
-     * this {@code AveTable}
+     * @return the {@code AbstractAveTableModel} that provides the data
+     * displayed by this {@code AveTable}
      */
     @Override
-    public AveTableModel getModel() {
-        return (AveTableModel) super.getModel();
+    public AbstractAveTableModel getModel() {
+        return (AbstractAveTableModel) super.getModel();
     }
 
     /**
@@ -265,7 +369,8 @@ public class AveTable extends JTable {
                 this.getModel().addRow(newRow);
             }
         }
-        this.calculateStringColumnsBestWidth(column);
+        // The edited cell has already been measured again by tableChanged().
+        this.columnWidthManager.invalidate();
     }
 
     /**
@@ -278,12 +383,12 @@ public class AveTable extends JTable {
      * column.
      */
     public int getStringColumnsBestWidth(final int columnIdx, final int preferredWidth) {
-        final int value = this.stringColumnsBestWidth[columnIdx];
-        // If stringColumnsBestWidth has not been set (e.g. column has not been edited) return preferredWidth.
-        if (value < 0) {
+        final ColumnWidthHistogram widths = this.stringColumnsWidths[columnIdx];
+        // If the cell widths of the column have not been measured yet return preferredWidth.
+        if (widths == null) {
             return preferredWidth;
         }
-        return value;
+        return widths.getBestWidth();
     }
 
     /**
@@ -429,7 +534,7 @@ public class AveTable extends JTable {
             final TableColumnModel columnModel = table.getColumnModel();
             final TableColumn tableColumn = columnModel.getColumn(column);
 
-            // Set minimum width from component preferred size.
+            // The minimum width is set by the ColumnWidthManager of the table from getColumnMinimumWidth().
             final Dimension componentPrefSize = component.getPreferredSize();
             int columnMinWidth = componentPrefSize.width + (2 * this.columnPadding);
 
@@ -443,8 +548,6 @@ public class AveTable extends JTable {
                 component.setPreferredSize(componentPrefSize);
             }
 
-            tableColumn.setMinWidth(columnMinWidth);
-
             // Sets a separator between the specified column and the rest of the table.
             if (column == this.separatorColumn) {
                 final Border separator = BorderFactory.createMatteBorder(0, 0, 1, 3, table.getGridColor());
@@ -463,6 +566,19 @@ public class AveTable extends JTable {
         public void setTotalMinimumWidth(int totalMinimumWidth) {
             this.totalMinimumWidth = totalMinimumWidth;
         }
+
+        // Returns the minimum width of a column, which is the preferred width of its header plus padding.
+        int getColumnMinimumWidth(final JTable table, int column) {
+            final TableColumn tableColumn = table.getColumnModel().getColumn(column);
+            final Component component = this.renderer.getTableCellRendererComponent(
+                    table, tableColumn.getHeaderValue(), false, false, -1, column);
+            if (this.font != null) {
+                component.setFont(this.font);
+            }
+            final int componentPrefWidth = component instanceof JLabel
+                    ? TextWidthCache.getInstance().preferredWidth((JLabel) component) : component.getPreferredSize().width;
+            return componentPrefWidth + (2 * this.columnPadding);
+        }
     }
 
     /**
@@ -494,9 +610,10 @@ public class AveTable extends JTable {
                 }
                 // Set columns preferred width back to the with before manual resizing and
                 // reset tableColumn identifier to default value.
-                if (tableColumn.getIdentifier().equals("ColumnIsManuallyResized")) {
+                if (tableColumn.getIdentifier().equals(ColumnWidthManager.COLUMN_IS_MANUALLY_RESIZED)) {
                     tableColumn.setIdentifier(tableColumn.getHeaderValue());
                     tableColumn.setPreferredWidth(this.table.getStringColumnsBestWidth(columnIdx, tableColumn.getPreferredWidth()));
+                    this.table.invalidateColumnWidths();
                     this.table.revalidate();
                     this.table.repaint();
                 }
@@ -1,128 +1,163 @@
 package de.joergwille.playground.shareddatamodel.swing.model;
 
-import java.util.Vector;
-import javax.swing.table.AbstractTableModel;
+import java.util.Arrays;
+import java.util.Collection;
 
 /**
  * AveTableModel
- * A table model which uses {@link AveTableRowEntry}.
+ * A table model which uses {@link AveTableRowEntry}.<br>
+ * The rows are stored in a growable array, which is not synchronized, since
+ * a table model is only accessed from the EDT.<br>
+ * The class of each column is kept in an array, either given by an
+ * {@link AveTableSchema} or taken once from the first row, so
+ * {@link #getColumnClass(int)} is a plain array read, which also works for an
+ * empty table with a schema.
  *
  * @author willejoerg
  */
 @SuppressWarnings("serial")
-public class AveTableModel extends AbstractTableModel {
+public class AveTableModel extends AbstractAveTableModel {
 
-    private final Vector<AveTableRowEntry> entries;
-    private final String[] columnNames;
+    private static final int DEFAULT_INITIAL_CAPACITY = 16;
+    private final Class<?>[] columnClasses; // an entry is null until the class of the column is known
+    private AveTableRowEntry[] entries;
+    private int rowCount;
 
-    private static Vector<AveTableRowEntry> newVector(int size) {
-        Vector<AveTableRowEntry> v = new Vector<>(size);
-        v.setSize(size);
-        return v;
+    public AveTableModel(final String[] columnNames) {
+        this(columnNames, 0);
     }
 
-    public AveTableModel(final String[] columnNames) {
+    /**
+     * Creates an empty <code>AveTableModel</code> with the column classes of
+     * a schema.
+     *
+     * @param columnNames the names of the columns
+     * @param schema the schema, which defines the class of each column.
+     */
+    public AveTableModel(final String[] columnNames, final AveTableSchema schema) {
         this(columnNames, 0);
+        if (schema.getColumnCount() != columnNames.length) {
+            throw new IllegalArgumentException("The number of columns in 'columnNames' (" + columnNames.length + ") " +
+                    "does not match the number of columns in 'schema' (" + schema.getColumnCount() + ").");
+        }
+        for (int c = 0; c < this.columnClasses.length; c++) {
+            this.columnClasses[c] = schema.getColumnClass(c);
+        }
     }
 
     public AveTableModel(final String[] columnNames, int rowCount) {
-        super();
-        this.entries = newVector(rowCount);
-        this.columnNames = columnNames;
+        super(columnNames);
+        this.columnClasses = new Class<?>[columnNames.length];
+        this.entries = new AveTableRowEntry[Math.max(DEFAULT_INITIAL_CAPACITY, rowCount)];
+        this.rowCount = rowCount;
     }
 
     public AveTableModel(final String[] columnNames, final AveTableRowEntry[] tableEntries) {
-        super();
-        this.columnNames = columnNames;
+        super(columnNames);
+        this.columnClasses = new Class<?>[columnNames.length];
         if (tableEntries != null && tableEntries.length > 0) {
-            this.entries = newVector(tableEntries.length);
-            for (int i = 0; i < tableEntries.length; i++) {
-                this.entries.set(i, tableEntries[i]);
-            }
-            fireTableRowsInserted(0, entries.size());
+            this.entries = Arrays.copyOf(tableEntries, Math.max(DEFAULT_INITIAL_CAPACITY, tableEntries.length));
+            this.rowCount = tableEntries.length;
+            fireTableRowsInserted(0, this.rowCount - 1);
         } else {
-            this.entries = newVector(0);
+            this.entries = new AveTableRowEntry[DEFAULT_INITIAL_CAPACITY];
+            this.rowCount = 0;
         }
     }
 
-    /**
-     * Adds a row to the end of the model.
-     * Notification of the row being added will be generated.
-     *
-     * @param tableEntry The non-null {@code AveTableRowEntry} object to be added.
-     */
-    @SuppressWarnings("unchecked")
-    public void addRow(final AveTableRowEntry tableEntry) {
-        if (columnNames.length != tableEntry.getRowData().length) {
-            throw new IllegalArgumentException("The number of colums (" + tableEntry.getRowData().length + ") in given 'TableRowEntry' " +
-                     "does not match with the number of columns (" + columnNames.length + ") in this 'TableModel'.");
+    @Override
+    public void insertRows(int row, final Collection<AveTableRowEntry> tableEntries) {
+        if (row < 0 || row > this.rowCount) {
+            throw new ArrayIndexOutOfBoundsException(row);
+        }
+        if (tableEntries.isEmpty()) {
+            return;
+        }
+        final AveTableRowEntry[] newEntries = tableEntries.toArray(new AveTableRowEntry[tableEntries.size()]);
+        for (AveTableRowEntry tableEntry : newEntries) {
+            super.checkColumnCount(tableEntry);
+        }
+        if (this.rowCount + newEntries.length > this.entries.length) {
+            this.entries = Arrays.copyOf(this.entries,
+                    Math.max(this.entries.length + (this.entries.length >> 1), this.rowCount + newEntries.length));
         }
-        int currentIndex = entries.size();
-        this.entries.add(tableEntry);
-        fireTableRowsInserted(currentIndex, currentIndex);
+        System.arraycopy(this.entries, row, this.entries, row + newEntries.length, this.rowCount - row);
+        System.arraycopy(newEntries, 0, this.entries, row, newEntries.length);
+        this.rowCount += newEntries.length;
+        fireTableRowsInserted(row, row + newEntries.length - 1);
     }
 
     /**
-     * Removes the row at <code>row</code> from the model. Notification
-     * of the row being removed will be sent to all the listeners.
+     * Replaces all rows of the model. The previous rows are notified by their
+     * <code>removeNotify()</code>. A single notification of the changed table
+     * data will be generated.
      *
-     * @param row the row index of the row to be removed
-     * @exception ArrayIndexOutOfBoundsException if the row was invalid
+     * @param tableEntries The non-null {@code AveTableRowEntry} objects of the model.
      */
-    public void removeRow(int row) {
-        this.entries.get(row).removeNotify();
-        this.entries.removeElementAt(row);
-        fireTableRowsDeleted(row, row);
+    public void setRows(final Collection<AveTableRowEntry> tableEntries) {
+        final AveTableRowEntry[] newEntries = tableEntries.toArray(new AveTableRowEntry[tableEntries.size()]);
+        for (AveTableRowEntry tableEntry : newEntries) {
+            super.checkColumnCount(tableEntry);
+        }
+        for (int row = 0; row < this.rowCount; row++) {
+            if (this.entries[row] != null) {
+                this.entries[row].removeNotify();
+            }
+        }
+        this.entries = newEntries.length >= DEFAULT_INITIAL_CAPACITY ? newEntries
+                : Arrays.copyOf(newEntries, DEFAULT_INITIAL_CAPACITY);
+        this.rowCount = newEntries.length;
+        fireTableDataChanged();
     }
 
     @Override
-    public int getRowCount() {
-        return this.entries.size();
+    public void removeRange(int fromRow, int toRow) {
+        super.checkRange(fromRow, toRow);
+        for (int row = fromRow; row <= toRow; row++) {
+            if (this.entries[row] != null) {
+                this.entries[row].removeNotify();
+            }
+        }
+        System.arraycopy(this.entries, toRow + 1, this.entries, fromRow, this.rowCount - toRow - 1);
+        final int newRowCount = this.rowCount - (toRow - fromRow + 1);
+        Arrays.fill(this.entries, newRowCount, this.rowCount, null);
+        this.rowCount = newRowCount;
+        fireTableRowsDeleted(fromRow, toRow);
     }
 
     @Override
-    public String getColumnName(int column) {
-        return this.columnNames[column];
+    public int getRowCount() {
+        return this.rowCount;
     }
 
     @Override
     public Class<?> getColumnClass(int column) {
-        Class<?> clazz = getValueAt(0, column).getClass();
-        if (clazz == null) {
-            clazz = super.getColumnClass(column);
+        final Class<?> clazz = this.columnClasses[column];
+        if (clazz != null) {
+            return clazz;
         }
-        return clazz;
-    }
-
-    @Override
-    public boolean isCellEditable(int rowIndex, int columnIndex) {
-        return true;
+        // Without a schema the class is taken from the first row, once the first row exists.
+        final Object value = this.rowCount > 0 && this.entries[0] != null ? this.getValueAt(0, column) : null;
+        if (value == null) {
+            return super.getColumnClass(column);
+        }
+        this.columnClasses[column] = value.getClass();
+        return this.columnClasses[column];
     }
 
-    @Override
-    public int getColumnCount() {
-        return this.columnNames.length;
+    private AveTableRowEntry entryAt(int rowIndex) {
+        if (rowIndex >= this.rowCount) {
+            throw new ArrayIndexOutOfBoundsException(rowIndex + " >= " + this.rowCount);
+        }
+        return this.entries[rowIndex];
     }
 
     @Override
     public Object getValueAt(int rowIndex, int columnIndex) {
-        AveTableRowEntry rowData = this.entries.elementAt(rowIndex);
+        AveTableRowEntry rowData = this.entryAt(rowIndex);
         return rowData.getRowDataForColumn(columnIndex);
     }
 
-    public String getStringValueAt(int rowIndex, int columnIndex) {
-        final Object valueAt = this.getValueAt(rowIndex, columnIndex);
-        String stringValueAt = null;
-        if (valueAt instanceof String) {
-            stringValueAt = (String) valueAt;
-        } else if (valueAt instanceof Boolean) {
-            stringValueAt = ((Boolean) valueAt) ? "true" : "false";
-        } else if (valueAt instanceof AveUpdatableSelection) {
-            stringValueAt = (String) ((AveUpdatableSelection) valueAt).getSelectedItem();
-        }
-        return stringValueAt;
-    }
-
     /**
      * Sets the object value for the cell at <code>columnIndex</code> and
      * <code>rowIndex</code>. <code>aValue</code> is the new value.
@@ -135,7 +170,7 @@ public class AveTableModel extends AbstractTableModel {
      */
     @Override
     public void setValueAt(final Object aValue, int rowIndex, int columnIndex) {
-        AveTableRowEntry rowData = this.entries.elementAt(rowIndex);
+        AveTableRowEntry rowData = this.entryAt(rowIndex);
         rowData.setRowDataForColumn(aValue, columnIndex);
         fireTableCellUpdated(rowIndex, columnIndex);
     }
@@ -10,8 +10,21 @@ package de.joergwille.playground.shareddatamodel.swing.model;
 public class AveTableRowEntry {
 
     private final Object[] rowData;
-    // in AveUpdatableSelection use default values for Avenue.
+    /**
+     * Has no effect, the selections of a row always use the default values
+     * for Avenue, as defined by {@link AveTableSchema}.
+     *
+     * @deprecated kept for compatibility, it is never read.
+     */
+    @Deprecated
     public boolean allowEmptySelection = false;
+    /**
+     * Has no effect, the selections of a row always use the default values
+     * for Avenue, as defined by {@link AveTableSchema}.
+     *
+     * @deprecated kept for compatibility, it is never read.
+     */
+    @Deprecated
     public boolean matchSelectionByString = true;
 
     private static Class<?> columnTypeToClass(final String columnType) {
@@ -27,7 +40,7 @@ public class AveTableRowEntry {
                 " is not supported. The 'columnType' must be a string which can be mapped to a class.");
     }
 
-    private static Class<?>[] columnTypesToClasses(String[] columnTypes) {
+    static Class<?>[] columnTypesToClasses(String[] columnTypes) {
         Class<?>[] classes = new Class<?>[columnTypes.length];
         for (int i = 0; i < classes.length; i++) {
             int toIndex = columnTypes[i].indexOf("(") > 0 ? columnTypes[i].indexOf("(") : columnTypes[i].length();
@@ -69,47 +82,17 @@ public class AveTableRowEntry {
      *                       must match the occurrences of <i>choice</i> entries in <i>columnTypes</i>.
      * @param defaultValues  An array of <code>String</code> to define default values. The sequence and number must match
      *                       the entries in <i>columnTypes</i>. 
+     *                       The column types are compiled for each row, to create many rows with the same arguments
+     *                       use {@link AveTableSchema#newRow()}.
+     * @see AveTableSchema#newRow()
      */
     public AveTableRowEntry(final String[] columnTypes, final AveSharedDataModel<String>[] choiceModels, final String[] defaultValues) {
-        Class<?>[] classes = columnTypesToClasses(columnTypes);
-
-        if (defaultValues != null && defaultValues.length > 0 &&
-                columnTypes.length > 0 && columnTypes.length != defaultValues.length) {
-            throw new IllegalArgumentException("The array arguments 'columnTypes' (" + columnTypes.length + ") " +
-                    "and 'defaultValues' (" + defaultValues.length + ") must be of the same lenght.");
-        }
-
-        // check if given arguments are consistent, e.g. the number of choiceModels must match the number of
-        // classes of type AveUpdatableSelection in columnTypes.
-        int numberOfAveUpdatableSelectionClasses = 0;
-        for (Class<?> clazz : classes) {
-            if (clazz.equals(AveUpdatableSelection.class)) {
-                numberOfAveUpdatableSelectionClasses++;
-            }
-        }
-        if (numberOfAveUpdatableSelectionClasses > 0 && (choiceModels == null || numberOfAveUpdatableSelectionClasses != choiceModels.length)) {
-            throw new IllegalArgumentException("The number of choice elements specified in 'columnTypes' (" + numberOfAveUpdatableSelectionClasses + ") " +
-                    "does not match the length of the given argument 'choiceModels' (" + ((choiceModels == null) ?
-                            "null" : choiceModels.length) + ").");
-        }
+        this(new AveTableSchema(columnTypes, choiceModels, defaultValues).newRowData());
+    }
 
-        this.rowData = new Object[classes.length];
-        int c = 0, m = 0;
-        for (Class<?> clazz : classes) {
-            if (clazz.equals(AveUpdatableSelection.class)) {
-                this.rowData[c] = new AveUpdatableSelection<>(choiceModels[m++], defaultValues != null ?
-                        defaultValues[c] : null, allowEmptySelection,
-                        matchSelectionByString);
-            } else if (clazz.equals(String.class)) {
-                this.rowData[c] = (defaultValues != null && defaultValues[c] != null) ? defaultValues[c] : "";
-            } else if (clazz.equals(Boolean.class)) {
-                this.rowData[c] = (defaultValues != null && defaultValues[c] != null) ?
-                        "true".equalsIgnoreCase(defaultValues[c].trim()) : false;
-            } else {
-                throw new IllegalArgumentException("The types specified in the 'classes' array is invalid.");
-            }
-            c++;
-        }
+    // Creates a row from row data, which has been created by an AveTableSchema.
+    AveTableRowEntry(final Object[] rowData) {
+        this.rowData = rowData;
     }
 
     /**
@@ -170,8 +153,12 @@ public class AveTableRowEntry {
      */
     public AveTableRowEntry(final AveTableRowEntry rowPrototype) {
         final Object[] newRowData = new Object[rowPrototype.getRowData().length];
-        // Make a deep copy;
-        System.arraycopy(rowPrototype.getRowData(), 0, newRowData, 0, rowPrototype.getRowData().length);
+        // Make a deep copy, each row must own its selections, since they are unregistered by removeNotify().
+        for (int i = 0; i < newRowData.length; i++) {
+            final Object value = rowPrototype.getRowData()[i];
+            newRowData[i] = value instanceof AveUpdatableSelection
+                    ? new AveUpdatableSelection<>((AveUpdatableSelection<?>) value) : value;
+        }
         this.rowData = newRowData;
     }
 
@@ -184,20 +171,22 @@ public class AveTableRowEntry {
         if (clazz.equals(AveUpdatableSelection.class)) {
             ((AveUpdatableSelection) this.rowData[column]).setSelectedItem(aValue);
         } else if (clazz.equals(Boolean.class)) {
-            final boolean aBooleanValue;
-            if (aValue instanceof Boolean) {
-                aBooleanValue = (Boolean) aValue;
-            } else if (aValue instanceof String) {
-                aBooleanValue = "true".equalsIgnoreCase(((String) aValue).trim());
-            } else {
-                aBooleanValue = false;
-            }
-            this.rowData[column] = aBooleanValue;
+            this.rowData[column] = toBoolean(aValue);
         } else {
             this.rowData[column] = aValue;
         }
     }
 
+    // Converts the value of a Boolean column, which might also be given as String.
+    static boolean toBoolean(Object aValue) {
+        if (aValue instanceof Boolean) {
+            return (Boolean) aValue;
+        } else if (aValue instanceof String) {
+            return "true".equalsIgnoreCase(((String) aValue).trim());
+        }
+        return false;
+    }
+
     public Object[] getRowData() {
         return this.rowData;
     }
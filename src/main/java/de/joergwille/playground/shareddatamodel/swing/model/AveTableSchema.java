@@ -0,0 +1,143 @@
+package de.joergwille.playground.shareddatamodel.swing.model;
+
+/**
+ * AveTableSchema The compiled description of the columns of a table. The
+ * column type strings are resolved once to their classes, the default values
+ * are converted once to the value of their column and each choice column
+ * knows its {@link AveSharedDataModel}. Creating an {@link AveTableRowEntry}
+ * from a schema is a plain copy of the default values, only the selections of
+ * choice columns have to be created per row.<br>
+ * An <code>AveTableSchema</code> is immutable and can be shared by all rows
+ * and models of a table.
+ *
+ * @author willejoerg
+ */
+public final class AveTableSchema {
+
+    // in AveUpdatableSelection use default values for Avenue.
+    private static final boolean ALLOW_EMPTY_SELECTION = false;
+    private static final boolean MATCH_SELECTION_BY_STRING = true;
+    private final Class<?>[] columnClasses;
+    private final Object[] defaultValues; // a String, a Boolean or the default item of a choice column
+    private final AveSharedDataModel<String>[] choiceModels; // by column, null for other than choice columns
+    private final int[] choiceColumns;
+
+    /**
+     * Creates a <code>AveTableSchema</code> object.
+     *
+     * @param columnTypes    An array of <code>String</code> to define the sequence and type of each column in a row.
+     *                       Each entry should be either <i>string</i>, <i>boolean</i> or <i>choice</i>.
+     * @param choiceModels   An array of <code>AveSharedDataModel</code> for specifying
+     *                       <code>AveChoiceElement</code> (JComboBox) columns. The sequence and number of <i>choiceModels</i>
+     *                       must match the occurrences of <i>choice</i> entries in <i>columnTypes</i>.
+     * @param defaultValues  An array of <code>String</code> to define default values. The sequence and number must match
+     *                       the entries in <i>columnTypes</i>. Might be <i>null</i>.
+     */
+    @SuppressWarnings("unchecked")
+    public AveTableSchema(final String[] columnTypes, final AveSharedDataModel<String>[] choiceModels,
+            final String[] defaultValues) {
+        this.columnClasses = AveTableRowEntry.columnTypesToClasses(columnTypes);
+
+        if (defaultValues != null && defaultValues.length > 0 &&
+                columnTypes.length > 0 && columnTypes.length != defaultValues.length) {
+            throw new IllegalArgumentException("The array arguments 'columnTypes' (" + columnTypes.length + ") " +
+                    "and 'defaultValues' (" + defaultValues.length + ") must be of the same lenght.");
+        }
+
+        // check if given arguments are consistent, e.g. the number of choiceModels must match the number of
+        // classes of type AveUpdatableSelection in columnTypes.
+        int numberOfAveUpdatableSelectionClasses = 0;
+        for (Class<?> clazz : this.columnClasses) {
+            if (clazz.equals(AveUpdatableSelection.class)) {
+                numberOfAveUpdatableSelectionClasses++;
+            }
+        }
+        if (numberOfAveUpdatableSelectionClasses > 0 && (choiceModels == null || numberOfAveUpdatableSelectionClasses != choiceModels.length)) {
+            throw new IllegalArgumentException("The number of choice elements specified in 'columnTypes' (" + numberOfAveUpdatableSelectionClasses + ") " +
+                    "does not match the length of the given argument 'choiceModels' (" + ((choiceModels == null) ?
+                            "null" : choiceModels.length) + ").");
+        }
+
+        this.defaultValues = new Object[this.columnClasses.length];
+        this.choiceModels = (AveSharedDataModel<String>[]) new AveSharedDataModel<?>[this.columnClasses.length];
+        this.choiceColumns = new int[numberOfAveUpdatableSelectionClasses];
+        final boolean hasDefaultValues = defaultValues != null && defaultValues.length > 0;
+        int m = 0;
+        for (int c = 0; c < this.columnClasses.length; c++) {
+            final String defaultValue = hasDefaultValues ? defaultValues[c] : null;
+            if (this.columnClasses[c].equals(AveUpdatableSelection.class)) {
+                this.choiceModels[c] = choiceModels[m];
+                this.choiceColumns[m++] = c;
+                this.defaultValues[c] = defaultValue;
+            } else if (this.columnClasses[c].equals(String.class)) {
+                this.defaultValues[c] = defaultValue != null ? defaultValue : "";
+            } else {
+                this.defaultValues[c] = defaultValue != null && "true".equalsIgnoreCase(defaultValue.trim());
+            }
+        }
+    }
+
+    public int getColumnCount() {
+        return this.columnClasses.length;
+    }
+
+    public Class<?> getColumnClass(int column) {
+        return this.columnClasses[column];
+    }
+
+    /**
+     * Returns the shared model of a choice column.
+     *
+     * @param column the index of the column
+     * @return the <code>AveSharedDataModel</code> or <i>null</i> if the column
+     * is not a choice column.
+     */
+    public AveSharedDataModel<String> getChoiceModel(int column) {
+        return this.choiceModels[column];
+    }
+
+    /**
+     * Returns the default value of a column, which is a <code>String</code>,
+     * a <code>Boolean</code> or the default item of a choice column.
+     *
+     * @param column the index of the column
+     * @return the default value, which is <i>null</i> for choice columns
+     * without default item.
+     */
+    public Object getDefaultValue(int column) {
+        return this.defaultValues[column];
+    }
+
+    // Returns the row data of a new row, with a new selection for each choice column.
+    Object[] newRowData() {
+        final Object[] rowData = this.defaultValues.clone();
+        for (int c : this.choiceColumns) {
+            rowData[c] = new AveUpdatableSelection<>(this.choiceModels[c], (String) this.defaultValues[c],
+                    ALLOW_EMPTY_SELECTION, MATCH_SELECTION_BY_STRING);
+        }
+        return rowData;
+    }
+
+    /**
+     * Creates a new row, which is initialized with the default values.
+     *
+     * @return a new <code>AveTableRowEntry</code>.
+     */
+    public AveTableRowEntry newRow() {
+        return new AveTableRowEntry(this.newRowData());
+    }
+
+    /**
+     * Creates new rows, which are initialized with the default values.
+     *
+     * @param count the number of rows to create
+     * @return an array of <i>count</i> new <code>AveTableRowEntry</code>.
+     */
+    public AveTableRowEntry[] newRows(int count) {
+        final AveTableRowEntry[] rows = new AveTableRowEntry[count];
+        for (int i = 0; i < count; i++) {
+            rows[i] = new AveTableRowEntry(this.newRowData());
+        }
+        return rows;
+    }
+}
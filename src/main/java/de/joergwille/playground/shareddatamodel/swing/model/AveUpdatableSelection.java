@@ -10,7 +10,12 @@ import java.util.List;
  * being used as the selection model for a <code>JComboBox</code> within a
  * <code>JTabel</code>. It has a reference to {@link AveSharedDataModel}. It
  * implements {@link UpdateListener} to react on changes for the
- * <code>selectedItem</code>.
+ * <code>selectedItem</code>.<br>
+ * It is registered in the {@link SelectionRegistry} of the shared model,
+ * which informs all selections in one pass per update, and it stores the
+ * selected item as the instance held by the shared model. Each selection
+ * still applies its own rules, e.g. {@code matchSelectionByString}, using the
+ * index lookups of the {@link UpdateContext} shared by all selections.
  *
  * @author willejoerg
  * @param <E>
@@ -24,6 +29,7 @@ public class AveUpdatableSelection<E> implements UpdateListener<E>, Serializable
     private boolean matchSelectionByString;
     private E prototypeDisplayValue;
     private boolean selectionUpdated;
+    int registrySlot = -1; // slot in the SelectionRegistry of the sharedModel, maintained by the registry
 
     /**
      *
@@ -52,12 +58,46 @@ public class AveUpdatableSelection<E> implements UpdateListener<E>, Serializable
         this.addListener();
     }
 
+    /**
+     * Creates a new selection of the same shared model with the same selected
+     * item and settings as the given selection. Both selections are updated
+     * independently.
+     *
+     * @param selection the selection to be copied.
+     */
+    public AveUpdatableSelection(final AveUpdatableSelection<E> selection) {
+        this.sharedModel = selection.sharedModel;
+        this.allowEmptySelection = selection.allowEmptySelection;
+        this.matchSelectionByString = selection.matchSelectionByString;
+        this.selectedItem = selection.selectedItem;
+        this.setPrototypeDisplayValue(selection.getPrototypeDisplayValue());
+        this.addListener();
+    }
+
+    /**
+     * Creates a selection of a table model, which does not store a selection
+     * per row. It is not registered at the shared model, so it is neither
+     * updated by the shared model nor does it need to be released.
+     *
+     * @param sharedModel the shared model, of which the item is a member.
+     * @param selectedItem the instance of the selected item held by the shared model.
+     * @param prototypeDisplayValue the current PrototypeDisplayValue of the shared model.
+     */
+    AveUpdatableSelection(AveSharedDataModel<E> sharedModel, final Object selectedItem, final E prototypeDisplayValue) {
+        this.sharedModel = sharedModel;
+        // Use default values for Avenue as in AveTableRowEntry.
+        this.allowEmptySelection = false;
+        this.matchSelectionByString = true;
+        this.selectedItem = selectedItem;
+        this.prototypeDisplayValue = prototypeDisplayValue;
+    }
+
     private void addListener() {
-        this.sharedModel.addUpdateListener(this);
+        this.sharedModel.registerSelection(this);
     }
 
     private void removeListener() {
-        this.sharedModel.removeUpdateListener(this);
+        this.sharedModel.unregisterSelection(this);
     }
 
     private void setSelected(E anItem) {
@@ -66,11 +106,19 @@ public class AveUpdatableSelection<E> implements UpdateListener<E>, Serializable
         }
         if ((this.sharedModel.contains(anItem) && this.selectedItem != null && !this.selectedItem.equals(anItem))
                 || (this.sharedModel.contains(anItem) && this.selectedItem == null && anItem != null)) {
-            this.selectedItem = anItem;
+            // Keep the instance of the shared model, so equal items are not held multiple times.
+            this.selectedItem = this.sharedModel.get(this.sharedModel.getIndexOf(anItem));
             this.sharedModel.fireContentsChanged(this, -1, -1);
         }
     }
     
+    // Sets the selected item regardless of allowEmptySelection and without firing an event. An item, which is not
+    // a member of the shared model, is not selected, as JComboBox.setSelectedItem ignores it.
+    void assignSelectedItem(final Object anItem) {
+        final int index = this.sharedModel.getIndexOf(anItem);
+        this.selectedItem = index >= 0 ? this.sharedModel.get(index) : null;
+    }
+
     private boolean crossedRenamingWithSelectedItem(List<E> newItems, List<E> currentItems, int newSelectedIndex, int currentSelectedIndex) {
         // Define that for cross renaming the list must be of equal lenght, have equal items and only the order differs.
         if (newItems.size() != currentItems.size() || !newItems.containsAll(currentItems) || !currentItems.containsAll(newItems)) {
@@ -83,13 +131,9 @@ public class AveUpdatableSelection<E> implements UpdateListener<E>, Serializable
         return true;
     }
 
-    private boolean onlySelectedItemIsRenamed(List<E> newItems, List<E> currentItems, int currentSelectedIndex) {
+    private boolean onlySelectedItemIsRenamed(UpdateContext<E> context, int currentSelectedIndex) {
         // Renaming only makes sense for E == String
-        if (newItems.get(0) instanceof String == false) {
-            return false;
-        }
-        // In a "rename case" the size does not change
-        if (newItems.size() != currentItems.size()) {
+        if (context.getNewItems().get(0) instanceof String == false) {
             return false;
         }
         // In a "rename case" the size does not change, except for the special case that the new list has exactly 1 additional item... 
@@ -105,28 +149,30 @@ public class AveUpdatableSelection<E> implements UpdateListener<E>, Serializable
 //                return false;
 //            }
 //        }
-        
-        for (int i = 0; i < currentItems.size(); i++) {
-            if (!newItems.get(i).equals(currentItems.get(i)) && i != currentSelectedIndex) {
-                return false;
-            }
-        }
-        return true;
+
+        // In a "rename case" the size does not change and all other items are equal.
+        return context.isOnlyMutationAt(currentSelectedIndex);
     }
 
     @Override
     public void updating(State state, List<E> newItems, List<E> currentItems, E prototypeDisplayValue) {
+        this.updating(state, new UpdateContext<>(newItems, currentItems, prototypeDisplayValue));
+    }
+
+    @Override
+    public void updating(State state, UpdateContext<E> context) {
         if (UpdateListener.State.AFTER_UPDATE.equals(state)) {
+            final List<E> newItems = context.getNewItems();
             
             // use PrototypeDisplayValue from AveSharedDataModel
-            this.setPrototypeDisplayValue(prototypeDisplayValue);
+            this.setPrototypeDisplayValue(context.getPrototypeDisplayValue());
             this.selectionUpdated = true;
 
             // Update selection.
             Object newSelection = null;
             // Check if current selected item still exists and has the same index in new list and if so return without changing selection.
-            final int indexInCurrentItems = currentItems.indexOf(this.selectedItem);
-            final int indexInNewItems = newItems.indexOf(this.selectedItem);
+            final int indexInCurrentItems = context.indexInCurrentItems(this.selectedItem);
+            final int indexInNewItems = context.indexInNewItems(this.selectedItem);
             if (indexInCurrentItems == indexInNewItems) {
                 return;
             }
@@ -135,7 +181,7 @@ public class AveUpdatableSelection<E> implements UpdateListener<E>, Serializable
                 newSelection = newItems.get(indexInNewItems);
             } else
             // Check if only the selected item changed.
-            if (this.onlySelectedItemIsRenamed(newItems, currentItems, indexInCurrentItems)) {
+            if (this.onlySelectedItemIsRenamed(context, indexInCurrentItems)) {
                 newSelection = newItems.get(indexInCurrentItems);
             }
 
@@ -147,6 +193,11 @@ public class AveUpdatableSelection<E> implements UpdateListener<E>, Serializable
         }
     }
 
+    @Override
+    public void prototypeDisplayValueChanged(E prototypeDisplayValue) {
+        this.setPrototypeDisplayValue(prototypeDisplayValue);
+    }
+
     /**
      * Notifies this object that it is no longer being used.
      * This method should be called from the components removeNotify() method which uses this object as data model.
@@ -195,7 +246,7 @@ public class AveUpdatableSelection<E> implements UpdateListener<E>, Serializable
     public void setSelectedItem(Object anObject) {
         this.setSelected((E) anObject);
     }    
-    
+
     /**
      * Get the value of the selected item with defined type.
      * The selected item may be null if {@code allowEmptySelection} is {@code true}.
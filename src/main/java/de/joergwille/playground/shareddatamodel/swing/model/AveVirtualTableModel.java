@@ -0,0 +1,252 @@
+package de.joergwille.playground.shareddatamodel.swing.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * AveVirtualTableModel A table model for very large datasets, which does not
+ * hold all of its rows. The rows are created by an {@link AveRowProvider} when
+ * they are requested, which usually happens only for the rows in the viewport
+ * of the table. Rows are created in aligned blocks, so the rows near the
+ * requested row are available as well, and kept in a window of least
+ * recently used rows. Rows which are pushed out of the window are released,
+ * so the memory scales with the viewport and not with the dataset.<br>
+ * An edited row is pinned and not released, until the edits are written back
+ * to the provider by {@link #flush()}.<br>
+ * The rows are defined by the provider, therefore rows can not be inserted or
+ * removed through this model. If the provider changes, {@link #refresh()}
+ * must be called.
+ *
+ * @author willejoerg
+ */
+@SuppressWarnings("serial")
+public class AveVirtualTableModel extends AbstractAveTableModel {
+
+    /**
+     * The default number of rows kept in the window.
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 1024;
+    private static final int BLOCK_SIZE = 64; // use a power of 2
+    private final AveTableSchema schema;
+    private final AveRowProvider rowProvider;
+    private final int windowSize;
+    private final Map<Integer, AveTableRowEntry> window;
+    private final TreeMap<Integer, AveTableRowEntry> pinnedRows;
+    private int rowCount;
+    private boolean cellsEditable;
+
+    /**
+     * Creates an <code>AveVirtualTableModel</code> with the default window
+     * size.
+     *
+     * @param columnNames the names of the columns
+     * @param schema the schema, which defines the class of each column.
+     * @param rowProvider the provider, which creates the rows.
+     */
+    public AveVirtualTableModel(final String[] columnNames, final AveTableSchema schema, final AveRowProvider rowProvider) {
+        this(columnNames, schema, rowProvider, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Creates an <code>AveVirtualTableModel</code>.
+     *
+     * @param columnNames the names of the columns
+     * @param schema the schema, which defines the class of each column.
+     * @param rowProvider the provider, which creates the rows.
+     * @param windowSize the number of rows kept, it should be larger than the
+     * number of rows visible at once.
+     */
+    public AveVirtualTableModel(final String[] columnNames, final AveTableSchema schema, final AveRowProvider rowProvider,
+            int windowSize) {
+        super(columnNames);
+        if (schema.getColumnCount() != columnNames.length) {
+            throw new IllegalArgumentException("The number of columns in 'columnNames' (" + columnNames.length + ") " +
+                    "does not match the number of columns in 'schema' (" + schema.getColumnCount() + ").");
+        }
+        this.schema = schema;
+        this.rowProvider = rowProvider;
+        this.windowSize = Math.max(2 * BLOCK_SIZE, windowSize);
+        this.pinnedRows = new TreeMap<>();
+        // An access ordered LinkedHashMap, which releases its least recently used row when the window is full.
+        this.window = new LinkedHashMap<Integer, AveTableRowEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, AveTableRowEntry> eldest) {
+                if (size() > AveVirtualTableModel.this.windowSize) {
+                    eldest.getValue().removeNotify();
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.rowCount = rowProvider.getRowCount();
+        this.cellsEditable = true;
+    }
+
+    // Returns the row, if necessary the block of rows around it is created by the provider.
+    private AveTableRowEntry rowAt(int row) {
+        if (row < 0 || row >= this.rowCount) {
+            throw new ArrayIndexOutOfBoundsException(row);
+        }
+        final AveTableRowEntry pinnedRow = this.pinnedRows.get(row);
+        if (pinnedRow != null) {
+            return pinnedRow;
+        }
+        AveTableRowEntry rowEntry = this.window.get(row);
+        if (rowEntry == null) {
+            final int firstRow = row & ~(BLOCK_SIZE - 1);
+            final AveTableRowEntry[] block
+                    = this.rowProvider.createRows(firstRow, Math.min(BLOCK_SIZE, this.rowCount - firstRow));
+            for (int i = 0; i < block.length; i++) {
+                final int blockRow = firstRow + i;
+                if (blockRow != row && (this.window.containsKey(blockRow) || this.pinnedRows.containsKey(blockRow))) {
+                    block[i].removeNotify();
+                } else if (blockRow != row) {
+                    this.window.put(blockRow, block[i]);
+                }
+            }
+            // The requested row is put last, so it is the most recently used row.
+            rowEntry = block[row - firstRow];
+            this.window.put(row, rowEntry);
+        }
+        return rowEntry;
+    }
+
+    /**
+     * Writes all edited rows back to the provider and unpins them.
+     *
+     * @return the number of rows written.
+     */
+    public int flush() {
+        final int count = this.pinnedRows.size();
+        while (!this.pinnedRows.isEmpty()) {
+            final Map.Entry<Integer, AveTableRowEntry> pinnedRow = this.pinnedRows.firstEntry();
+            this.rowProvider.storeRow(pinnedRow.getKey(), pinnedRow.getValue());
+            this.pinnedRows.remove(pinnedRow.getKey());
+            this.window.put(pinnedRow.getKey(), pinnedRow.getValue());
+        }
+        return count;
+    }
+
+    /**
+     * Releases all rows, which have not been edited, and reads the number of
+     * rows from the provider again. Edited rows which have not been flushed
+     * stay pinned, unless they are beyond the new number of rows, then their
+     * edits are dropped.
+     */
+    public void refresh() {
+        this.releaseWindow();
+        this.rowCount = this.rowProvider.getRowCount();
+        // Pinned rows beyond the new end do not exist anymore and must not be flushed at stale positions.
+        final Map<Integer, AveTableRowEntry> droppedRows = this.pinnedRows.tailMap(this.rowCount);
+        for (AveTableRowEntry rowEntry : droppedRows.values()) {
+            rowEntry.removeNotify();
+        }
+        droppedRows.clear();
+        fireTableDataChanged();
+    }
+
+    private void releaseWindow() {
+        for (AveTableRowEntry rowEntry : this.window.values()) {
+            rowEntry.removeNotify();
+        }
+        this.window.clear();
+    }
+
+    /**
+     * Returns the number of rows, which are currently held by this model.
+     *
+     * @return the number of rows in the window plus the number of pinned rows.
+     */
+    public int getMaterializedRowCount() {
+        return this.window.size() + this.pinnedRows.size();
+    }
+
+    /**
+     * Returns the number of edited rows, which have not been flushed yet.
+     *
+     * @return the number of pinned rows.
+     */
+    public int getPinnedRowCount() {
+        return this.pinnedRows.size();
+    }
+
+    // Returns the indices of the rows currently held by this model, without creating any row.
+    List<Integer> getMaterializedRows() {
+        final List<Integer> rows = new ArrayList<>(this.window.keySet());
+        rows.addAll(this.pinnedRows.keySet());
+        return rows;
+    }
+
+    @Override
+    public void insertRows(int row, final Collection<AveTableRowEntry> tableEntries) {
+        throw new UnsupportedOperationException("The rows of an 'AveVirtualTableModel' are defined by its 'AveRowProvider'.");
+    }
+
+    @Override
+    public void removeRange(int fromRow, int toRow) {
+        throw new UnsupportedOperationException("The rows of an 'AveVirtualTableModel' are defined by its 'AveRowProvider'.");
+    }
+
+    /**
+     * Releases all rows, which have not been edited. Edited rows which have
+     * not been flushed stay pinned.
+     */
+    @Override
+    public void removeNotify() {
+        this.releaseWindow();
+    }
+
+    /**
+     * Specifies if the cells of this model can be edited. Cells are editable
+     * by default.
+     *
+     * @param cellsEditable if <i>false</i> no cell can be edited.
+     */
+    public void setCellsEditable(final boolean cellsEditable) {
+        this.cellsEditable = cellsEditable;
+    }
+
+    @Override
+    public boolean isCellEditable(int rowIndex, int columnIndex) {
+        return this.cellsEditable;
+    }
+
+    @Override
+    public int getRowCount() {
+        return this.rowCount;
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return this.schema.getColumnClass(column);
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        return this.rowAt(rowIndex).getRowDataForColumn(columnIndex);
+    }
+
+    /**
+     * Sets the object value for the cell at <code>columnIndex</code> and
+     * <code>rowIndex</code> and pins the row, until it is flushed.
+     * This method will generate a <code>tableChanged</code> notification.
+     *
+     * @param aValue      the new value; this can be null
+     * @param rowIndex    the row whose value is to be changed
+     * @param columnIndex the column whose value is to be changed
+     * @exception ArrayIndexOutOfBoundsException if an invalid row or column was given
+     */
+    @Override
+    public void setValueAt(final Object aValue, int rowIndex, int columnIndex) {
+        final AveTableRowEntry rowEntry = this.rowAt(rowIndex);
+        if (this.window.remove(rowIndex) != null) {
+            this.pinnedRows.put(rowIndex, rowEntry);
+        }
+        rowEntry.setRowDataForColumn(aValue, columnIndex);
+        fireTableCellUpdated(rowIndex, columnIndex);
+    }
+}
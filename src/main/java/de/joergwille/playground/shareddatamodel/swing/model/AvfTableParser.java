@@ -0,0 +1,281 @@
+package de.joergwille.playground.shareddatamodel.swing.model;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * AvfTableParser Reads a table in AVF format, which is either a vector of the
+ * form <code>(a1,a2,..,an)</code> or a two-dimensional table of the form
+ * <code>([a11,..,a1m],[a21,..,a2m],..,[an1,..,anm])</code>, into rows of
+ * String cells.<br>
+ * The contents are read in a single pass, keeping track of the depth of
+ * parentheses, so a cell may contain a function with commas, e.g.
+ * <code>parval(a,test0)</code>. Leading and trailing whitespace of a cell is
+ * removed. No intermediate strings are created besides the cells themselves.<br>
+ * The rows can be passed on in chunks while the table is parsed, e.g. to
+ * display the first rows of a large table before it is read completely.
+ *
+ * @author willejoerg
+ */
+public final class AvfTableParser {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int EOF = -1;
+    private final Readable source;
+    private final char[] chars;
+    private final CharBuffer buffer; // wraps chars
+    private int index;
+    private int limit;
+    private final int columnCount;
+    private final StringBuilder cell;
+    private final int chunkSize;
+    private final ChunkListener chunkListener; // null if all rows are returned at once
+    private List<AveTableRowEntry> rows;
+    private int rowCount;
+    private long position; // the number of characters read
+
+    /**
+     * Receives the rows of a table in chunks while it is parsed.
+     */
+    public interface ChunkListener {
+
+        /**
+         * Invoked on the parsing thread whenever a chunk of rows is parsed.
+         *
+         * @param rows the next rows of the table, which are not used by the
+         * parser anymore
+         * @param position the number of characters read so far
+         */
+        void rowsParsed(List<AveTableRowEntry> rows, long position);
+    }
+
+    private AvfTableParser(final Readable source, int columnCount, int chunkSize, final ChunkListener chunkListener) {
+        this.source = source;
+        this.chars = new char[BUFFER_SIZE];
+        this.buffer = CharBuffer.wrap(this.chars);
+        this.columnCount = columnCount;
+        this.cell = new StringBuilder();
+        this.chunkSize = Math.max(1, chunkSize);
+        this.chunkListener = chunkListener;
+        this.rows = new ArrayList<>(chunkListener != null ? chunkSize : 10);
+    }
+
+    /**
+     * Parses a table in AVF format. The cells of a vector are put into the
+     * first column.
+     *
+     * @param contents the table in AVF format
+     * @param columnCount the number of columns of the created rows
+     * @return the rows of the table, each with <i>columnCount</i> String cells
+     * or <i>null</i> for missing cells.
+     * @exception IllegalArgumentException if the contents are not in AVF
+     * format, the rows do not have the same number of cells or have more cells
+     * than <i>columnCount</i>.
+     */
+    public static List<AveTableRowEntry> parseRows(final CharSequence contents, int columnCount) {
+        try {
+            return new AvfTableParser(CharBuffer.wrap(contents), columnCount, 0, null).parse();
+        } catch (IOException e) {
+            // Reading from a CharSequence does not fail.
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Parses a table in AVF format and passes its rows in chunks to a
+     * listener. The cells of a vector are put into the first column.
+     *
+     * @param contents the table in AVF format
+     * @param columnCount the number of columns of the created rows
+     * @param chunkSize the number of rows of each chunk but the last one
+     * @param chunkListener the listener, which receives the rows
+     * @return the number of rows of the table.
+     * @exception IllegalArgumentException if the contents are not in AVF
+     * format, the rows do not have the same number of cells or have more cells
+     * than <i>columnCount</i>. The chunks passed before remain valid rows.
+     */
+    public static int parseRows(final CharSequence contents, int columnCount, int chunkSize,
+            final ChunkListener chunkListener) {
+        try {
+            return new AvfTableParser(CharBuffer.wrap(contents), columnCount, chunkSize, chunkListener).parseChunks();
+        } catch (IOException e) {
+            // Reading from a CharSequence does not fail.
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Parses a table in AVF format. The cells of a vector are put into the
+     * first column.
+     *
+     * @param reader the reader of the table in AVF format, which is not closed
+     * @param columnCount the number of columns of the created rows
+     * @return the rows of the table, each with <i>columnCount</i> String cells
+     * or <i>null</i> for missing cells.
+     * @throws IOException if reading fails.
+     * @exception IllegalArgumentException if the contents are not in AVF
+     * format, the rows do not have the same number of cells or have more cells
+     * than <i>columnCount</i>.
+     */
+    public static List<AveTableRowEntry> parseRows(final Reader reader, int columnCount) throws IOException {
+        return new AvfTableParser(reader, columnCount, 0, null).parse();
+    }
+
+    /**
+     * Parses a table in AVF format and passes its rows in chunks to a
+     * listener. The cells of a vector are put into the first column.
+     *
+     * @param reader the reader of the table in AVF format, which is not closed
+     * @param columnCount the number of columns of the created rows
+     * @param chunkSize the number of rows of each chunk but the last one
+     * @param chunkListener the listener, which receives the rows
+     * @return the number of rows of the table.
+     * @throws IOException if reading fails.
+     * @exception IllegalArgumentException if the contents are not in AVF
+     * format, the rows do not have the same number of cells or have more cells
+     * than <i>columnCount</i>. The chunks passed before remain valid rows.
+     */
+    public static int parseRows(final Reader reader, int columnCount, int chunkSize, final ChunkListener chunkListener)
+            throws IOException {
+        return new AvfTableParser(reader, columnCount, chunkSize, chunkListener).parseChunks();
+    }
+
+    private int parseChunks() throws IOException {
+        this.parse();
+        if (!this.rows.isEmpty()) {
+            this.chunkListener.rowsParsed(this.rows, this.position);
+        }
+        return this.rowCount;
+    }
+
+    private void addRow(final Object[] rowData) {
+        this.rows.add(new AveTableRowEntry(rowData));
+        this.rowCount++;
+        if (this.chunkListener != null && this.rows.size() >= this.chunkSize) {
+            this.chunkListener.rowsParsed(this.rows, this.position);
+            this.rows = new ArrayList<>(this.chunkSize);
+        }
+    }
+
+    private List<AveTableRowEntry> parse() throws IOException {
+        this.expect('(', this.nextNonWhitespace());
+        int c = this.nextNonWhitespace();
+        if (c == '[') {
+            // two-dimensional table, each row is enclosed in brackets
+            int rowLength = -1;
+            while (true) {
+                rowLength = this.parseRow(']', rowLength);
+                c = this.nextNonWhitespace();
+                if (c == ')') {
+                    break;
+                }
+                this.expect(',', c);
+                this.expect('[', this.nextNonWhitespace());
+            }
+        } else if (c != ')') {
+            // vector, each cell is a row
+            while (true) {
+                c = this.parseCell(c, ')');
+                final Object[] rowData = new Object[this.columnCount];
+                rowData[0] = this.cellValue();
+                this.addRow(rowData);
+                if (c == ')') {
+                    break;
+                }
+                c = this.next();
+            }
+        }
+        if (this.nextNonWhitespace() != EOF) {
+            throw new IllegalArgumentException("Unexpected characters after the end of the table at " + this.position + ".");
+        }
+        return this.rows;
+    }
+
+    // Parses the cells of a row up to the closing character and returns the number of cells, which must match
+    // rowLength unless it is negative. A row is only added if it is valid, since it may be passed on in a chunk.
+    private int parseRow(char close, int rowLength) throws IOException {
+        final Object[] rowData = new Object[this.columnCount];
+        int column = 0;
+        int c = this.next();
+        while (true) {
+            c = this.parseCell(c, close);
+            if (column >= this.columnCount) {
+                throw new IllegalArgumentException("The row " + (this.rowCount + 1) + " has more than " +
+                        this.columnCount + " columns.");
+            }
+            rowData[column++] = this.cellValue();
+            if (c == close) {
+                break;
+            }
+            c = this.next();
+        }
+        if (rowLength >= 0 && column != rowLength) {
+            throw new IllegalArgumentException("Inconsistent number of columns in table definition: row " +
+                    (this.rowCount + 1) + " has " + column + " instead of " + rowLength + " columns.");
+        }
+        this.addRow(rowData);
+        return column;
+    }
+
+    // Reads a cell starting with c into the cell buffer and returns the ',' or closing character, which ends it.
+    private int parseCell(int c, char close) throws IOException {
+        this.cell.setLength(0);
+        int depth = 0;
+        while (c != EOF && Character.isWhitespace(c)) {
+            c = this.next();
+        }
+        while (depth > 0 || (c != ',' && c != close)) {
+            if (c == EOF) {
+                throw new IllegalArgumentException("Unexpected end of the table, '" + close + "' is missing.");
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')' && depth > 0) {
+                depth--;
+            }
+            this.cell.append((char) c);
+            c = this.next();
+        }
+        return c;
+    }
+
+    private String cellValue() {
+        int length = this.cell.length();
+        while (length > 0 && Character.isWhitespace(this.cell.charAt(length - 1))) {
+            length--;
+        }
+        return this.cell.substring(0, length);
+    }
+
+    private void expect(char expected, int c) {
+        if (c != expected) {
+            throw new IllegalArgumentException("Expected '" + expected + "' at " + this.position + " but found " +
+                    (c == EOF ? "the end of the table." : "'" + (char) c + "'."));
+        }
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        int c = this.next();
+        while (c != EOF && Character.isWhitespace(c)) {
+            c = this.next();
+        }
+        return c;
+    }
+
+    private int next() throws IOException {
+        if (this.index == this.limit) {
+            this.buffer.clear();
+            final int count = this.source.read(this.buffer);
+            if (count <= 0) {
+                return EOF;
+            }
+            this.index = 0;
+            this.limit = count;
+        }
+        this.position++;
+        return this.chars[this.index++];
+    }
+}
@@ -0,0 +1,96 @@
+package de.joergwille.playground.shareddatamodel.swing.model;
+
+import java.util.Arrays;
+import java.util.TreeMap;
+
+/**
+ * ColumnWidthHistogram keeps the measured width of each cell of one table
+ * column in row order together with a sorted multiset of these widths. Rows
+ * can be inserted, deleted and updated individually, so the best width of the
+ * column, which is the widest cell, is available in O(log n) without
+ * measuring all cells again.
+ *
+ * @author willejoerg
+ */
+final class ColumnWidthHistogram {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 16;
+    private final TreeMap<Integer, Integer> widthCounts;
+    private int[] rowWidths;
+    private int rowCount;
+
+    ColumnWidthHistogram() {
+        this.widthCounts = new TreeMap<>();
+        this.rowWidths = new int[DEFAULT_INITIAL_CAPACITY];
+        this.rowCount = 0;
+    }
+
+    private void addWidth(int width) {
+        this.widthCounts.merge(width, 1, Integer::sum);
+    }
+
+    private void removeWidth(int width) {
+        final Integer count = this.widthCounts.get(width);
+        if (count == null) {
+            return;
+        }
+        if (count == 1) {
+            this.widthCounts.remove(width);
+        } else {
+            this.widthCounts.put(width, count - 1);
+        }
+    }
+
+    int getRowCount() {
+        return this.rowCount;
+    }
+
+    /**
+     * Inserts the widths of consecutive rows starting at <i>firstRow</i>.
+     *
+     * @param firstRow the index of the first inserted row
+     * @param widths the widths of the inserted rows
+     */
+    void insertRows(int firstRow, int[] widths) {
+        if (this.rowCount + widths.length > this.rowWidths.length) {
+            this.rowWidths = Arrays.copyOf(this.rowWidths,
+                    Math.max(this.rowWidths.length << 1, this.rowCount + widths.length));
+        }
+        System.arraycopy(this.rowWidths, firstRow, this.rowWidths, firstRow + widths.length, this.rowCount - firstRow);
+        System.arraycopy(widths, 0, this.rowWidths, firstRow, widths.length);
+        this.rowCount += widths.length;
+        for (int width : widths) {
+            this.addWidth(width);
+        }
+    }
+
+    /**
+     * Deletes the rows from <i>firstRow</i> to <i>lastRow</i>, both
+     * inclusive.
+     *
+     * @param firstRow the index of the first deleted row
+     * @param lastRow the index of the last deleted row
+     */
+    void deleteRows(int firstRow, int lastRow) {
+        for (int row = firstRow; row <= lastRow; row++) {
+            this.removeWidth(this.rowWidths[row]);
+        }
+        System.arraycopy(this.rowWidths, lastRow + 1, this.rowWidths, firstRow, this.rowCount - lastRow - 1);
+        this.rowCount -= lastRow - firstRow + 1;
+    }
+
+    void updateRow(int row, int width) {
+        this.removeWidth(this.rowWidths[row]);
+        this.rowWidths[row] = width;
+        this.addWidth(width);
+    }
+
+    /**
+     * Returns the width of the widest cell.
+     *
+     * @return the best width or <i>0</i> if the column has no rows.
+     */
+    int getBestWidth() {
+        return this.widthCounts.isEmpty() ? 0 : this.widthCounts.lastKey();
+    }
+}
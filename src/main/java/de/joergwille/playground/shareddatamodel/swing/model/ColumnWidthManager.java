@@ -0,0 +1,201 @@
+package de.joergwille.playground.shareddatamodel.swing.model;
+
+import java.awt.Component;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.event.TableColumnModelEvent;
+import javax.swing.event.TableColumnModelListener;
+import javax.swing.table.TableColumn;
+import javax.swing.table.TableColumnModel;
+
+/**
+ * ColumnWidthManager sets the widths of the columns of an {@link AveTable}
+ * outside of painting, so the cell renderers do not have to modify
+ * <code>TableColumn</code> widths while they are being painted.<br>
+ * Whenever a column width might have changed, the table calls
+ * {@link #invalidate()}. All invalidations of one EDT cycle are coalesced into
+ * a single width pass, which is run later on the EDT. A column width is only
+ * set, if it actually changed, so unchanged columns do not fire column model
+ * events and do not cause another layout and repaint.<br>
+ * Columns which have been resized manually are flagged with the identifier
+ * <i>ColumnIsManuallyResized</i> and are skipped, until the selections of the
+ * column have been updated by their {@link AveSharedDataModel} or the column
+ * is reset by a double click on its header.
+ *
+ * @author willejoerg
+ */
+final class ColumnWidthManager implements TableColumnModelListener {
+
+    static final String COLUMN_IS_MANUALLY_RESIZED = "ColumnIsManuallyResized";
+    private final AveTable table;
+    // The shared models of choice columns, to reset manually resized columns when the shared model gets updated.
+    private final Map<AveSharedDataModel<Object>, SharedModelListener> sharedModels;
+    private boolean passPending;
+    private boolean disposed;
+    private int passCount;
+
+    ColumnWidthManager(final AveTable table) {
+        this.table = table;
+        this.sharedModels = new IdentityHashMap<>();
+    }
+
+    /**
+     * Schedules a width pass on the EDT, unless one is already pending.
+     */
+    void invalidate() {
+        if (!this.passPending && !this.disposed) {
+            this.passPending = true;
+            SwingUtilities.invokeLater(this::applyColumnWidths);
+        }
+    }
+
+    /**
+     * Returns the number of width passes which have been run.
+     *
+     * @return the number of width passes.
+     */
+    int getPassCount() {
+        return this.passCount;
+    }
+
+    // Sets the width of each column, which has not been resized manually.
+    @SuppressWarnings("unchecked")
+    private void applyColumnWidths() {
+        this.passPending = false;
+        if (this.disposed) {
+            return;
+        }
+        this.passCount++;
+        final TableColumnModel columnModel = this.table.getColumnModel();
+        for (int column = 0; column < columnModel.getColumnCount(); column++) {
+            final TableColumn tableColumn = columnModel.getColumn(column);
+            final Class<?> columnClass = this.table.getColumnClass(column);
+            final int minWidth = this.table.getHeaderMinimumWidth(column);
+            if (minWidth >= 0 && tableColumn.getMinWidth() != minWidth) {
+                tableColumn.setMinWidth(minWidth);
+            }
+            if (this.table.getRowCount() == 0) {
+                continue;
+            }
+            final Object value = this.table.getValueAt(0, column);
+            if (value instanceof AveUpdatableSelection) {
+                final AveSharedDataModel<Object> sharedModel = ((AveUpdatableSelection<Object>) value).sharedModel;
+                if (!this.sharedModels.containsKey(sharedModel)) {
+                    final SharedModelListener listener = new SharedModelListener(sharedModel);
+                    this.sharedModels.put(sharedModel, listener);
+                    sharedModel.addUpdateListener(listener);
+                }
+            }
+            if (COLUMN_IS_MANUALLY_RESIZED.equals(tableColumn.getIdentifier())) {
+                continue;
+            }
+            int prefColumnWidth;
+            if (String.class.equals(columnClass)) {
+                prefColumnWidth = this.table.getStringColumnsBestWidth(column, -1);
+                if (prefColumnWidth < 0) {
+                    prefColumnWidth = this.table.calculateStringColumnsBestWidth(column);
+                }
+                // Optionally add extra width, e.g. to gain space for vertical ScrollBar to last column.
+                if (column == columnModel.getColumnCount() - 1) {
+                    prefColumnWidth += this.table.getLastColumnExtraWidth();
+                }
+            } else if (AveUpdatableSelection.class.equals(columnClass)) {
+                final Component component = this.table.prepareRenderer(this.table.getCellRenderer(0, column), 0, column);
+                final int width;
+                if (component instanceof AveChoiceElementCellRenderer && value instanceof AveUpdatableSelection) {
+                    // All rows of a choice column share the prototype of the shared model, it is not taken from a row.
+                    width = ((AveChoiceElementCellRenderer) component)
+                            .getPreferredWidth(((AveUpdatableSelection<?>) value).sharedModel);
+                } else {
+                    width = component.getPreferredSize().width;
+                }
+                prefColumnWidth = Math.max(tableColumn.getMinWidth(), width);
+            } else {
+                continue;
+            }
+            if (tableColumn.getPreferredWidth() != prefColumnWidth || tableColumn.getWidth() != prefColumnWidth) {
+                tableColumn.setPreferredWidth(prefColumnWidth);
+                tableColumn.setWidth(tableColumn.getPreferredWidth());
+            }
+        }
+    }
+
+    /**
+     * Stops listening to the shared models of the choice columns.
+     */
+    void removeNotify() {
+        this.disposed = true;
+        for (Map.Entry<AveSharedDataModel<Object>, SharedModelListener> entry : this.sharedModels.entrySet()) {
+            entry.getKey().removeUpdateListener(entry.getValue());
+        }
+        this.sharedModels.clear();
+    }
+
+    /**
+     * Listens to the shared model of choice columns. After an update the
+     * selections of these columns have changed, so a manually resized column
+     * is layouted automatically again.
+     */
+    private final class SharedModelListener implements UpdateListener<Object> {
+
+        private final AveSharedDataModel<Object> sharedModel;
+
+        SharedModelListener(final AveSharedDataModel<Object> sharedModel) {
+            this.sharedModel = sharedModel;
+        }
+
+        @Override
+        public void updating(State state, List<Object> newItems, List<Object> currentItems, Object prototypeDisplayValue) {
+            if (!UpdateListener.State.AFTER_UPDATE.equals(state)) {
+                return;
+            }
+            final TableColumnModel columnModel = table.getColumnModel();
+            for (int column = 0; column < columnModel.getColumnCount() && table.getRowCount() > 0; column++) {
+                final Object value = table.getValueAt(0, column);
+                if (value instanceof AveUpdatableSelection
+                        && ((AveUpdatableSelection<?>) value).sharedModel == this.sharedModel) {
+                    final TableColumn tableColumn = columnModel.getColumn(column);
+                    tableColumn.setIdentifier(tableColumn.getHeaderValue());
+                }
+            }
+            invalidate();
+        }
+
+        @Override
+        public void prototypeDisplayValueChanged(Object prototypeDisplayValue) {
+            invalidate();
+        }
+    }
+
+    @Override
+    public void columnMarginChanged(ChangeEvent e) {
+        // Check if a column is manually being resized and if so remember this in the column identifier.
+        final TableColumn resizingColumn = this.table.getTableHeader() != null
+                ? this.table.getTableHeader().getResizingColumn() : null;
+        if (resizingColumn != null) {
+            resizingColumn.setIdentifier(COLUMN_IS_MANUALLY_RESIZED);
+        }
+    }
+
+    @Override
+    public void columnAdded(TableColumnModelEvent e) {
+        this.invalidate();
+    }
+
+    @Override
+    public void columnRemoved(TableColumnModelEvent e) {
+        this.invalidate();
+    }
+
+    @Override
+    public void columnMoved(TableColumnModelEvent e) {
+    }
+
+    @Override
+    public void columnSelectionChanged(ListSelectionEvent e) {
+    }
+}
@@ -0,0 +1,141 @@
+package de.joergwille.playground.shareddatamodel.swing.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ListDiff computes the edit script to transform one list of unique elements
+ * into another list of unique elements.<br>
+ * Common prefix and suffix are trimmed first. For the remaining middle part a
+ * hash pre-pass maps each new element to its index in the old list. Since all
+ * elements are unique, the longest common subsequence is the longest
+ * increasing subsequence of these old indices (patience diff), which is found
+ * in O(n log n). The elements in between two matched elements form a
+ * {@link Hunk}.
+ *
+ * @author willejoerg
+ */
+final class ListDiff {
+
+    /**
+     * A contiguous change of the old list. <i>oldCount</i> elements starting at
+     * <i>oldFrom</i> in the old list are replaced by <i>newCount</i> elements
+     * starting at <i>newFrom</i> in the new list.
+     */
+    static final class Hunk {
+
+        final int oldFrom;
+        final int oldCount;
+        final int newFrom;
+        final int newCount;
+
+        Hunk(int oldFrom, int oldCount, int newFrom, int newCount) {
+            this.oldFrom = oldFrom;
+            this.oldCount = oldCount;
+            this.newFrom = newFrom;
+            this.newCount = newCount;
+        }
+
+        @Override
+        public String toString() {
+            return "Hunk{old=" + oldFrom + "+" + oldCount + ", new=" + newFrom + "+" + newCount + "}";
+        }
+    }
+
+    private ListDiff() {
+    }
+
+    /**
+     * Computes the hunks to transform <i>oldItems</i> into <i>newItems</i>.
+     * Both lists must not contain duplicates.
+     *
+     * @param <E> the type of the elements
+     * @param oldItems the original list
+     * @param newItems the changed list
+     * @return the hunks in ascending order, empty if both lists are equal
+     */
+    static <E> List<Hunk> compute(List<? extends E> oldItems, List<? extends E> newItems) {
+        final List<Hunk> hunks = new ArrayList<>();
+        int oldEnd = oldItems.size();
+        int newEnd = newItems.size();
+
+        // Trim common prefix and suffix.
+        int start = 0;
+        while (start < oldEnd && start < newEnd && oldItems.get(start).equals(newItems.get(start))) {
+            start++;
+        }
+        while (oldEnd > start && newEnd > start && oldItems.get(oldEnd - 1).equals(newItems.get(newEnd - 1))) {
+            oldEnd--;
+            newEnd--;
+        }
+        if (start == oldEnd && start == newEnd) {
+            return hunks;
+        }
+
+        // Hash pre-pass: map each element of the new middle part to its index in the old middle part.
+        final Map<E, Integer> oldIndices = new HashMap<>((oldEnd - start) << 1);
+        for (int i = start; i < oldEnd; i++) {
+            oldIndices.put(oldItems.get(i), i);
+        }
+        final int[] matchedOldIndex = new int[newEnd - start];
+        for (int j = start; j < newEnd; j++) {
+            final Integer oldIndex = oldIndices.get(newItems.get(j));
+            matchedOldIndex[j - start] = oldIndex != null ? oldIndex : -1;
+        }
+
+        // Collect the anchors (matched elements which are kept in place) and the hunks in between.
+        int oldPos = start;
+        int newPos = start;
+        for (int j : longestIncreasingSubsequence(matchedOldIndex)) {
+            final int oldAnchor = matchedOldIndex[j];
+            final int newAnchor = start + j;
+            addHunk(hunks, oldPos, oldAnchor, newPos, newAnchor);
+            oldPos = oldAnchor + 1;
+            newPos = newAnchor + 1;
+        }
+        addHunk(hunks, oldPos, oldEnd, newPos, newEnd);
+        return hunks;
+    }
+
+    private static void addHunk(List<Hunk> hunks, int oldFrom, int oldTo, int newFrom, int newTo) {
+        if (oldTo > oldFrom || newTo > newFrom) {
+            hunks.add(new Hunk(oldFrom, oldTo - oldFrom, newFrom, newTo - newFrom));
+        }
+    }
+
+    // Returns the positions of the longest strictly increasing subsequence of the non-negative values.
+    private static int[] longestIncreasingSubsequence(int[] values) {
+        final int[] tailPositions = new int[values.length];
+        final int[] predecessors = new int[values.length];
+        int length = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] < 0) {
+                continue;
+            }
+            // Binary search for the first pile whose top is not smaller than values[i].
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (values[tailPositions[mid]] < values[i]) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            predecessors[i] = low > 0 ? tailPositions[low - 1] : -1;
+            tailPositions[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+        final int[] positions = new int[length];
+        for (int k = length - 1, i = length > 0 ? tailPositions[length - 1] : -1; k >= 0; k--) {
+            positions[k] = i;
+            i = predecessors[i];
+        }
+        return positions;
+    }
+}
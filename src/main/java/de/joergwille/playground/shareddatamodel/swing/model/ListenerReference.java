@@ -0,0 +1,27 @@
+package de.joergwille.playground.shareddatamodel.swing.model;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+
+/**
+ * ListenerReference is a weak reference to a listener of an
+ * {@link AveSharedDataModel} in weak listener mode. Once the listener has
+ * been garbage collected the reference is enqueued and the model calls
+ * {@link #purge()} to remove the stale entry from where it is registered.
+ *
+ * @author willejoerg
+ * @param <T> the type of the listener
+ */
+abstract class ListenerReference<T> extends WeakReference<T> {
+
+    ListenerReference(T listener, ReferenceQueue<Object> queue) {
+        super(listener, queue);
+    }
+
+    /**
+     * Removes this reference from where it is registered.
+     *
+     * @return <i>true</i> if the reference was still registered.
+     */
+    abstract boolean purge();
+}
@@ -0,0 +1,172 @@
+package de.joergwille.playground.shareddatamodel.swing.model;
+
+import java.io.Serializable;
+import java.lang.ref.ReferenceQueue;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * SelectionRegistry holds all {@link AveUpdatableSelection} of one
+ * {@link AveSharedDataModel}. Instead of registering each selection as a
+ * separate {@link UpdateListener}, the shared model informs the registry once
+ * per update and the registry informs all selections in a single pass. Each
+ * selection resolves its item by the O(1) index lookups of the
+ * {@link UpdateContext}, which are built once per update, so an update costs
+ * O(items + selections).<br>
+ * The selections keep the item instead of its index, since the indices would
+ * have to be shifted for all selections whenever an element is inserted or
+ * removed between updates.<br>
+ * Selections are stored in an array and each selection knows its slot, so
+ * registering and unregistering is O(1). Unregistering moves the last
+ * selection into the freed slot, therefore the order of the selections is not
+ * preserved.<br>
+ * A selection can be registered weakly, then the registry only holds a
+ * {@link ListenerReference} to it, which is purged by the shared model once
+ * the selection has been garbage collected.
+ *
+ * @author willejoerg
+ * @param <E> the type of the items of the shared model
+ */
+@SuppressWarnings("serial")
+final class SelectionRegistry<E> implements UpdateListener<E>, Serializable {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 16;
+    private Object[] entries; // either an AveUpdatableSelection or a SelectionReference to it
+    private int size;
+    private transient Object[] snapshot; // reused by all updates until the next modification
+
+    /**
+     * A weak reference to a selection, which knows its slot in the registry.
+     */
+    private static final class SelectionReference extends ListenerReference<AveUpdatableSelection<?>> {
+
+        private final SelectionRegistry<?> registry;
+        private int slot;
+
+        SelectionReference(AveUpdatableSelection<?> selection, ReferenceQueue<Object> queue,
+                SelectionRegistry<?> registry, int slot) {
+            super(selection, queue);
+            this.registry = registry;
+            this.slot = slot;
+        }
+
+        @Override
+        boolean purge() {
+            return this.registry.purge(this);
+        }
+    }
+
+    SelectionRegistry() {
+        this.entries = new Object[DEFAULT_INITIAL_CAPACITY];
+        this.size = 0;
+    }
+
+    void register(AveUpdatableSelection<E> selection) {
+        this.register(selection, null);
+    }
+
+    /**
+     * Registers a selection.
+     *
+     * @param selection the selection to be registered
+     * @param queue if not <i>null</i> the selection is only referenced weakly
+     * and its reference is enqueued to <i>queue</i> once it has been garbage
+     * collected.
+     */
+    void register(AveUpdatableSelection<E> selection, ReferenceQueue<Object> queue) {
+        if (selection.registrySlot >= 0) {
+            return;
+        }
+        if (this.size == this.entries.length) {
+            this.entries = Arrays.copyOf(this.entries, this.size << 1);
+        }
+        selection.registrySlot = this.size;
+        this.entries[this.size] = queue != null ? new SelectionReference(selection, queue, this, this.size) : selection;
+        this.size++;
+        this.snapshot = null;
+    }
+
+    void unregister(AveUpdatableSelection<E> selection) {
+        final int slot = selection.registrySlot;
+        if (slot < 0 || slot >= this.size || selectionOf(this.entries[slot]) != selection) {
+            return;
+        }
+        if (this.entries[slot] instanceof SelectionReference) {
+            // A cleared reference is not enqueued anymore, so it is not counted as purged.
+            ((SelectionReference) this.entries[slot]).clear();
+        }
+        this.removeSlot(slot);
+        selection.registrySlot = -1;
+    }
+
+    private boolean purge(SelectionReference reference) {
+        final int slot = reference.slot;
+        if (slot >= this.size || this.entries[slot] != reference) {
+            return false;
+        }
+        this.removeSlot(slot);
+        return true;
+    }
+
+    // Moves the last entry into the given slot.
+    private void removeSlot(int slot) {
+        final Object last = this.entries[--this.size];
+        this.entries[slot] = last;
+        this.entries[this.size] = null;
+        if (slot != this.size) {
+            if (last instanceof SelectionReference) {
+                ((SelectionReference) last).slot = slot;
+            }
+            final AveUpdatableSelection<?> selection = selectionOf(last);
+            if (selection != null) {
+                selection.registrySlot = slot;
+            }
+        }
+        this.snapshot = null;
+    }
+
+    private static AveUpdatableSelection<?> selectionOf(Object entry) {
+        return entry instanceof SelectionReference
+                ? ((SelectionReference) entry).get() : (AveUpdatableSelection<?>) entry;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    @Override
+    public void updating(State state, List<E> newItems, List<E> currentItems, E prototypeDisplayValue) {
+        this.updating(state, new UpdateContext<>(newItems, currentItems, prototypeDisplayValue));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void updating(State state, UpdateContext<E> context) {
+        for (Object entry : this.snapshot()) {
+            final AveUpdatableSelection<E> selection = (AveUpdatableSelection<E>) selectionOf(entry);
+            if (selection != null) {
+                selection.updating(state, context);
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void prototypeDisplayValueChanged(E prototypeDisplayValue) {
+        for (Object entry : this.snapshot()) {
+            final AveUpdatableSelection<E> selection = (AveUpdatableSelection<E>) selectionOf(entry);
+            if (selection != null) {
+                selection.prototypeDisplayValueChanged(prototypeDisplayValue);
+            }
+        }
+    }
+
+    // Selections might register or unregister while being notified, so they are iterated over a snapshot.
+    // The snapshot holds the entries rather than the selections, so weakly registered selections stay collectable.
+    private Object[] snapshot() {
+        if (this.snapshot == null) {
+            this.snapshot = Arrays.copyOf(this.entries, this.size);
+        }
+        return this.snapshot;
+    }
+}
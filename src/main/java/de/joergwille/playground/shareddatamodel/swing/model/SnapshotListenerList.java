@@ -0,0 +1,167 @@
+package de.joergwille.playground.shareddatamodel.swing.model;
+
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * SnapshotListenerList is a replacement for <code>EventListenerList</code>
+ * and plain lists of listeners for a single listener type.<br>
+ * Listeners are stored in an array in the order they were added and each
+ * listener's slot is kept in an identity map, so adding is amortised O(1) and
+ * removing is O(1). A removed listener leaves an empty slot, the array is
+ * compacted once more than half of the slots are empty.<br>
+ * For dispatching, {@link #snapshot()} returns an array of the listeners. The
+ * array is built once after a modification and then shared by all following
+ * dispatches, so firing events does not allocate. Listeners which add or
+ * remove listeners while being notified do not affect an ongoing dispatch.
+ * Modifications are synchronized and the snapshot is published through a
+ * volatile field, so it may be read from any thread.
+ *
+ * @author willejoerg
+ * @param <T> the type of the listeners
+ */
+@SuppressWarnings("serial")
+public final class SnapshotListenerList<T> implements Serializable {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 4;
+    private final T[] empty;
+    private final Map<T, Integer> slots;
+    private T[] listeners;
+    private int end; // number of used slots including empty slots
+    private volatile transient T[] snapshot;
+
+    /**
+     * Creates an empty <code>SnapshotListenerList</code>.
+     *
+     * @param listenerType the type of the listeners, which is used as
+     * component type of the arrays returned by {@link #snapshot()}.
+     */
+    @SuppressWarnings("unchecked")
+    public SnapshotListenerList(final Class<T> listenerType) {
+        this.empty = (T[]) Array.newInstance(listenerType, 0);
+        this.slots = new IdentityHashMap<>();
+        this.listeners = (T[]) Array.newInstance(listenerType, DEFAULT_INITIAL_CAPACITY);
+        this.end = 0;
+        this.snapshot = this.empty;
+    }
+
+    /**
+     * Adds a listener. <i>null</i> and listeners which are already contained
+     * are ignored.
+     *
+     * @param listener the listener to be added
+     * @return <i>true</i> if the listener was added.
+     */
+    public synchronized boolean add(final T listener) {
+        if (listener == null || this.slots.containsKey(listener)) {
+            return false;
+        }
+        if (this.end == this.listeners.length) {
+            if (this.slots.size() <= this.end >> 1) {
+                this.compact();
+            } else {
+                this.listeners = Arrays.copyOf(this.listeners, this.end << 1);
+            }
+        }
+        this.slots.put(listener, this.end);
+        this.listeners[this.end++] = listener;
+        this.snapshot = null;
+        return true;
+    }
+
+    /**
+     * Removes a listener.
+     *
+     * @param listener the listener to be removed
+     * @return <i>true</i> if the listener was contained.
+     */
+    public synchronized boolean remove(final T listener) {
+        final Integer slot = listener != null ? this.slots.remove(listener) : null;
+        if (slot == null) {
+            return false;
+        }
+        this.listeners[slot] = null;
+        if (this.slots.isEmpty()) {
+            this.end = 0;
+        } else if (this.slots.size() < this.end >> 1) {
+            this.compact();
+        }
+        this.snapshot = null;
+        return true;
+    }
+
+    public synchronized boolean contains(final T listener) {
+        return this.slots.containsKey(listener);
+    }
+
+    public synchronized int size() {
+        return this.slots.size();
+    }
+
+    public boolean isEmpty() {
+        return this.snapshot().length == 0;
+    }
+
+    /**
+     * Returns the listeners in the order they were added. The returned array
+     * is shared by all callers until the next modification and must not be
+     * modified. Use {@link #toArray()} to get a copy.
+     *
+     * @return the current listeners, or an empty array.
+     */
+    public T[] snapshot() {
+        T[] current = this.snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = this.snapshot;
+                if (current == null) {
+                    current = this.slots.isEmpty() ? this.empty : this.copyListeners();
+                    this.snapshot = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Returns a copy of the listeners in the order they were added.
+     *
+     * @return the current listeners, or an empty array.
+     */
+    public T[] toArray() {
+        final T[] current = this.snapshot();
+        return current.length == 0 ? current : current.clone();
+    }
+
+    // Copies the listeners without empty slots.
+    private T[] copyListeners() {
+        final T[] copy = Arrays.copyOf(this.listeners, this.slots.size());
+        int count = 0;
+        for (int i = 0; i < this.end; i++) {
+            if (this.listeners[i] != null) {
+                copy[count++] = this.listeners[i];
+            }
+        }
+        return copy;
+    }
+
+    // Moves all listeners to the front of the array and updates their slots.
+    private void compact() {
+        int count = 0;
+        for (int i = 0; i < this.end; i++) {
+            final T listener = this.listeners[i];
+            if (listener != null) {
+                if (count != i) {
+                    this.listeners[count] = listener;
+                    this.listeners[i] = null;
+                    this.slots.put(listener, count);
+                }
+                count++;
+            }
+        }
+        this.end = count;
+    }
+}
@@ -0,0 +1,228 @@
+package de.joergwille.playground.shareddatamodel.swing.model;
+
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Insets;
+import java.awt.font.TextLayout;
+import java.text.Bidi;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.swing.JLabel;
+import javax.swing.plaf.basic.BasicHTML;
+
+/**
+ * TextWidthCache A bounded cache for the pixel width of strings, keyed by font
+ * and string. It is shared by {@link AveTable}, its renderers and
+ * {@link AveSharedDataModel}, so the width of a string is measured only once,
+ * no matter how often it is rendered or compared.<br>
+ * Strings are measured directly with <code>FontMetrics.stringWidth</code>.
+ * Strings of complex scripts, e.g. right-to-left text or text with combining
+ * marks, are measured with a <code>TextLayout</code> instead. If the cache is
+ * full, the least recently used width is evicted. The number of hits, misses
+ * and evictions can be queried to tune the size of the cache.
+ * <code>TextWidthCache</code> uses a singleton pattern.
+ *
+ * @author willejoerg
+ */
+public final class TextWidthCache {
+
+    private static final class InstanceHolder {
+
+        static final TextWidthCache INSTANCE = new TextWidthCache(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * The default number of widths kept by the cache.
+     */
+    public static final int DEFAULT_MAXIMUM_SIZE = 8192;
+    private static final Map<Font, FontMetrics> FONT_METRICS = new ConcurrentHashMap<>();
+    private final Map<Key, Integer> widths;
+    private final int maximumSize;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * The key of a cached width. Fonts are immutable, so they can be used as
+     * part of a key.
+     */
+    private static final class Key {
+
+        private final Font font;
+        private final String text;
+        private final int hash;
+
+        Key(Font font, String text) {
+            this.font = font;
+            this.text = text;
+            this.hash = 31 * font.hashCode() + text.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return this.hash == other.hash && this.text.equals(other.text) && this.font.equals(other.font);
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private TextWidthCache(int maximumSize) {
+        this.maximumSize = maximumSize;
+        // An access ordered LinkedHashMap, which removes its least recently used entry when the cache is full.
+        this.widths = new LinkedHashMap<Key, Integer>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Integer> eldest) {
+                if (size() > TextWidthCache.this.maximumSize) {
+                    TextWidthCache.this.evictionCount++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns a single instance of <code>TextWidthCache</code>.
+     *
+     * @return <code>TextWidthCache</code> singelton object.
+     */
+    public static TextWidthCache getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    static FontMetrics fontMetricsFor(Font font) {
+        return FONT_METRICS.computeIfAbsent(font, (aFont) -> new JLabel().getFontMetrics(aFont));
+    }
+
+    /**
+     * Returns the width of a string in pixels, when rendered with the given
+     * font.
+     *
+     * @param font the font used to render the string
+     * @param text the string to be measured
+     * @return the width of <i>text</i> in pixel or <i>0</i> if <i>text</i> is
+     * <i>null</i> or empty.
+     */
+    public synchronized int stringWidth(final Font font, final String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        final Key key = new Key(font, text);
+        final Integer width = this.widths.get(key);
+        if (width != null) {
+            this.hitCount++;
+            return width;
+        }
+        this.missCount++;
+        final int measuredWidth = measure(fontMetricsFor(font), text);
+        this.widths.put(key, measuredWidth);
+        return measuredWidth;
+    }
+
+    private static int measure(final FontMetrics fontMetrics, final String text) {
+        if (requiresTextLayout(text)) {
+            final TextLayout textLayout = new TextLayout(text, fontMetrics.getFont(), fontMetrics.getFontRenderContext());
+            return (int) Math.ceil(textLayout.getAdvance());
+        }
+        return fontMetrics.stringWidth(text);
+    }
+
+    // Right-to-left text, surrogates and combining marks are not measured correctly by FontMetrics.stringWidth.
+    private static boolean requiresTextLayout(final String text) {
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (c < '\u0300') {
+                continue;
+            }
+            if (Character.isSurrogate(c)) {
+                return true;
+            }
+            switch (Character.getType(c)) {
+                case Character.NON_SPACING_MARK:
+                case Character.ENCLOSING_MARK:
+                case Character.COMBINING_SPACING_MARK:
+                    return true;
+                default:
+                    break;
+            }
+        }
+        final char[] chars = text.toCharArray();
+        return Bidi.requiresBidi(chars, 0, chars.length);
+    }
+
+    /**
+     * Returns the preferred width of a label. The width of plain text labels
+     * without an icon is the cached width of their text plus their insets, so
+     * the label does not need to be layouted. Other labels, e.g. with HTML
+     * text or an explicitly set preferred size, are asked for their preferred
+     * size.
+     *
+     * @param label the label to be measured
+     * @return the preferred width of <i>label</i> in pixel.
+     */
+    int preferredWidth(final JLabel label) {
+        final String text = label.getText();
+        if (label.isPreferredSizeSet() || label.getIcon() != null || label.getFont() == null
+                || (text != null && BasicHTML.isHTMLString(text))) {
+            return label.getPreferredSize().width;
+        }
+        final Insets insets = label.getInsets();
+        return this.stringWidth(label.getFont(), text) + insets.left + insets.right;
+    }
+
+    /**
+     * Returns the number of widths which have been found in the cache.
+     *
+     * @return the number of cache hits.
+     */
+    public synchronized long getHitCount() {
+        return this.hitCount;
+    }
+
+    /**
+     * Returns the number of widths which had to be measured.
+     *
+     * @return the number of cache misses.
+     */
+    public synchronized long getMissCount() {
+        return this.missCount;
+    }
+
+    /**
+     * Returns the number of widths which have been removed from the full
+     * cache.
+     *
+     * @return the number of evictions.
+     */
+    public synchronized long getEvictionCount() {
+        return this.evictionCount;
+    }
+
+    /**
+     * Returns the number of widths currently kept by the cache.
+     *
+     * @return the number of cached widths.
+     */
+    public synchronized int size() {
+        return this.widths.size();
+    }
+
+    /**
+     * Removes all cached widths. The counters are not reset.
+     */
+    public synchronized void clear() {
+        this.widths.clear();
+    }
+}
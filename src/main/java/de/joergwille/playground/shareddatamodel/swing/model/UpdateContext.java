@@ -0,0 +1,137 @@
+package de.joergwille.playground.shareddatamodel.swing.model;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * UpdateContext is passed by {@link AveSharedDataModel#update(List)} to all
+ * registered {@link UpdateListener}. Besides the new and the current items it
+ * provides O(1) index lookups into both lists. The item to index maps are
+ * built at most once per update and shared by all listeners, instead of each
+ * listener searching both lists with <code>indexOf</code>.
+ *
+ * @author willejoerg
+ * @param <E> the type of the items
+ */
+public final class UpdateContext<E> {
+
+    private final List<E> newItems;
+    private final List<E> currentItems;
+    private E prototypeDisplayValue;
+    private Map<Object, Integer> newIndices;
+    private Map<Object, Integer> currentIndices;
+    private int mutationCount;
+    private int firstMutationIndex;
+
+    /**
+     * Creates an <code>UpdateContext</code>.
+     *
+     * @param newItems the items after the update
+     * @param currentItems the items before the update
+     * @param prototypeDisplayValue A PrototypeDisplayValue to be used for
+     * optimizing rendering. Might be <i>null</i>.
+     */
+    public UpdateContext(final List<E> newItems, final List<E> currentItems, final E prototypeDisplayValue) {
+        this.newItems = newItems;
+        this.currentItems = currentItems;
+        this.prototypeDisplayValue = prototypeDisplayValue;
+        this.mutationCount = -1;
+        this.firstMutationIndex = -1;
+    }
+
+    // Maps each item to the index of its first occurrence.
+    private static <E> Map<Object, Integer> buildIndices(List<E> items) {
+        final Map<Object, Integer> indices = new HashMap<>(items.size() << 1);
+        for (int i = 0; i < items.size(); i++) {
+            indices.putIfAbsent(items.get(i), i);
+        }
+        return indices;
+    }
+
+    // Counts the positions where the items differ, if both lists are of equal size.
+    private void countMutations() {
+        if (this.mutationCount >= 0) {
+            return;
+        }
+        this.mutationCount = 0;
+        if (this.newItems.size() != this.currentItems.size()) {
+            this.mutationCount = Integer.MAX_VALUE;
+            return;
+        }
+        for (int i = 0; i < this.newItems.size(); i++) {
+            if (!this.newItems.get(i).equals(this.currentItems.get(i))) {
+                if (this.mutationCount++ == 0) {
+                    this.firstMutationIndex = i;
+                }
+            }
+        }
+    }
+
+    public List<E> getNewItems() {
+        return this.newItems;
+    }
+
+    public List<E> getCurrentItems() {
+        return this.currentItems;
+    }
+
+    public E getPrototypeDisplayValue() {
+        return this.prototypeDisplayValue;
+    }
+
+    // The model determines the PrototypeDisplayValue of the new items once they have been applied.
+    void setPrototypeDisplayValue(E prototypeDisplayValue) {
+        this.prototypeDisplayValue = prototypeDisplayValue;
+    }
+
+    /**
+     * Returns the index of the first occurrence of the item in the new items.
+     *
+     * @param item the item to search for
+     * @return the index or <i>-1</i> if the item is not contained.
+     */
+    public int indexInNewItems(Object item) {
+        if (this.newIndices == null) {
+            this.newIndices = buildIndices(this.newItems);
+        }
+        return this.newIndices.getOrDefault(item, -1);
+    }
+
+    /**
+     * Returns the index of the first occurrence of the item in the current
+     * items.
+     *
+     * @param item the item to search for
+     * @return the index or <i>-1</i> if the item is not contained.
+     */
+    public int indexInCurrentItems(Object item) {
+        if (this.currentIndices == null) {
+            this.currentIndices = buildIndices(this.currentItems);
+        }
+        return this.currentIndices.getOrDefault(item, -1);
+    }
+
+    /**
+     * Returns <i>true</i> if the new items differ from the current items by
+     * at most one item at the same index, e.g. if one item is being renamed.
+     *
+     * @return <i>true</i> if the size is equal and at most one item changed.
+     */
+    public boolean isOnlyOneMutation() {
+        this.countMutations();
+        return this.mutationCount <= 1;
+    }
+
+    /**
+     * Returns <i>true</i> if the new items differ from the current items at
+     * most at the given index.
+     *
+     * @param index the index of the only item which may have changed
+     * @return <i>true</i> if the size is equal and all other items are equal.
+     */
+    public boolean isOnlyMutationAt(int index) {
+        this.countMutations();
+        return this.mutationCount == 0 || (this.mutationCount == 1 && this.firstMutationIndex == index);
+    }
+}
@@ -26,4 +26,27 @@ public interface UpdateListener<E> {
      *                               Might be <i>null<i/>.
      */
     public void updating(State state, List<E> newItems, List<E> currentItems, E prototypeDisplayValue);
+
+    /**
+     * Before and after the shared DataModel gets updated, it informs all bound
+     * listeners with an {@link UpdateContext}, which provides O(1) index
+     * lookups into the new and the current items. The default implementation
+     * delegates to {@link #updating(State, List, List, Object)}.
+     *
+     * @param state
+     * @param context The items and index lookups of this update.
+     */
+    public default void updating(State state, UpdateContext<E> context) {
+        this.updating(state, context.getNewItems(), context.getCurrentItems(), context.getPrototypeDisplayValue());
+    }
+
+    /**
+     * Is called on the EDT, when the shared DataModel has determined a new
+     * PrototypeDisplayValue outside of an update, e.g. after measuring its
+     * items in the background. The default implementation does nothing.
+     *
+     * @param prototypeDisplayValue  The new PrototypeDisplayValue. Might be <i>null<i/>.
+     */
+    public default void prototypeDisplayValueChanged(E prototypeDisplayValue) {
+    }
 }
@@ -0,0 +1,142 @@
+package de.joergwille.playground.shareddatamodel.swing.model;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.swing.JLabel;
+import javax.swing.UIManager;
+
+/**
+ * WidestStringTracker keeps track of the widest of a changing set of strings
+ * as rendered by a <code>JLabel</code>. It is used by
+ * {@link AveSharedDataModel} to compute the PrototypeDisplayValue
+ * incrementally.<br>
+ * Each string is measured once with the current label font using the shared
+ * {@link TextWidthCache}. The strings are kept in a
+ * histogram sorted by width, so adding, removing and finding the widest
+ * string is O(log n). If the label font changes, e.g. by a look and feel
+ * change, all strings are measured again on the next access.<br>
+ * A tracker created with <i>byLength</i> uses the number of characters as
+ * width instead, so it can estimate the widest string without measuring
+ * any string.<br>
+ * {@link #widestOf(List, Font, FontRenderContext)} measures a snapshot of
+ * strings without any Swing component, so it can be used off the EDT.
+ *
+ * @author willejoerg
+ */
+final class WidestStringTracker {
+
+    private final Map<String, Integer> widths;
+    private final TreeMap<Integer, Set<String>> stringsByWidth;
+    private final boolean byLength;
+    private Font font;
+
+    WidestStringTracker() {
+        this(false);
+    }
+
+    WidestStringTracker(boolean byLength) {
+        this.widths = new HashMap<>();
+        this.stringsByWidth = new TreeMap<>();
+        this.byLength = byLength;
+    }
+
+    static Font currentFont() {
+        final Font labelFont = UIManager.getFont("Label.font");
+        return labelFont != null ? labelFont : new JLabel().getFont();
+    }
+
+    /**
+     * Returns the widest of the given strings, measured with the font and the
+     * FontRenderContext snapshot. Of multiple strings with the same width the
+     * first one is returned. This method does not access any Swing component
+     * and returns <i>null</i> early, if the current thread is interrupted.
+     *
+     * @param strings the strings to be measured
+     * @param font the font of the label
+     * @param fontRenderContext the FontRenderContext of the label font
+     * @return the widest string or <i>null</i> if no string is given.
+     */
+    static String widestOf(List<String> strings, Font font, FontRenderContext fontRenderContext) {
+        double maxWidth = -1;
+        String widest = null;
+        for (int i = 0; i < strings.size(); i++) {
+            if ((i & 0xFFF) == 0 && Thread.currentThread().isInterrupted()) {
+                return null;
+            }
+            final String aString = strings.get(i);
+            final double width = font.getStringBounds(aString, fontRenderContext).getWidth();
+            if (width > maxWidth) {
+                widest = aString;
+                maxWidth = width;
+            }
+        }
+        return widest;
+    }
+
+    // Measures all strings again, if the label font has changed since they were measured.
+    private void validateFont() {
+        if (this.byLength) {
+            return;
+        }
+        final Font currentFont = currentFont();
+        if (currentFont.equals(this.font)) {
+            return;
+        }
+        this.font = currentFont;
+        final List<String> strings = new ArrayList<>(this.widths.keySet());
+        this.widths.clear();
+        this.stringsByWidth.clear();
+        for (String aString : strings) {
+            this.put(aString);
+        }
+    }
+
+    private void put(String aString) {
+        final int width = this.byLength ? aString.length() : TextWidthCache.getInstance().stringWidth(this.font, aString);
+        this.widths.put(aString, width);
+        this.stringsByWidth.computeIfAbsent(width, (w) -> new LinkedHashSet<>()).add(aString);
+    }
+
+    void add(String aString) {
+        this.validateFont();
+        if (!this.widths.containsKey(aString)) {
+            this.put(aString);
+        }
+    }
+
+    void remove(String aString) {
+        final Integer width = this.widths.remove(aString);
+        if (width == null) {
+            return;
+        }
+        final Set<String> strings = this.stringsByWidth.get(width);
+        strings.remove(aString);
+        if (strings.isEmpty()) {
+            this.stringsByWidth.remove(width);
+        }
+    }
+
+    void clear() {
+        this.widths.clear();
+        this.stringsByWidth.clear();
+    }
+
+    /**
+     * Returns the widest string. Of multiple strings with the same width the
+     * one added first is returned.
+     *
+     * @return the widest string or <i>null</i> if no string is tracked.
+     */
+    String getWidest() {
+        this.validateFont();
+        final Map.Entry<Integer, Set<String>> widest = this.stringsByWidth.lastEntry();
+        return widest != null ? widest.getValue().iterator().next() : null;
+    }
+}
@@ -0,0 +1,105 @@
+package de.joergwille.playground.shareddatamodel.swing.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.event.TableModelEvent;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of the bulk row operations of {@link AbstractAveTableModel}.
+ *
+ * @author willejoerg
+ */
+class AbstractAveTableModelTest {
+
+    private static AveTableModel createModel(int rowCount) {
+        final AveTableModel model = new AveTableModel(new String[]{"Name"});
+        final List<AveTableRowEntry> rows = new ArrayList<>(rowCount);
+        for (int row = 0; row < rowCount; row++) {
+            rows.add(new AveTableRowEntry(new Object[]{"row" + row}));
+        }
+        model.addRows(rows);
+        return model;
+    }
+
+    private static String[] values(final AveTableModel model) {
+        final String[] values = new String[model.getRowCount()];
+        for (int row = 0; row < values.length; row++) {
+            values[row] = (String) model.getValueAt(row, 0);
+        }
+        return values;
+    }
+
+    @Test
+    void removeRowsFiresOneEventPerRunFromTheLast() {
+        final AveTableModel model = createModel(12);
+        final List<int[]> deletedRanges = new ArrayList<>();
+        model.addTableModelListener(e -> {
+            assertEquals(TableModelEvent.DELETE, e.getType());
+            deletedRanges.add(new int[]{e.getFirstRow(), e.getLastRow()});
+        });
+        model.removeRows(new int[]{0, 1, 4, 7, 8, 9, 11});
+        assertArrayEquals(new String[]{"row2", "row3", "row5", "row6", "row10"}, values(model));
+        assertEquals(4, deletedRanges.size());
+        assertArrayEquals(new int[]{11, 11}, deletedRanges.get(0));
+        assertArrayEquals(new int[]{7, 9}, deletedRanges.get(1));
+        assertArrayEquals(new int[]{4, 4}, deletedRanges.get(2));
+        assertArrayEquals(new int[]{0, 1}, deletedRanges.get(3));
+    }
+
+    @Test
+    void removeRowsOfAllRows() {
+        final AveTableModel model = createModel(100);
+        final int[] rows = new int[100];
+        for (int row = 0; row < rows.length; row++) {
+            rows[row] = row;
+        }
+        final List<TableModelEvent> events = new ArrayList<>();
+        model.addTableModelListener(events::add);
+        model.removeRows(rows);
+        assertEquals(0, model.getRowCount());
+        assertEquals(1, events.size());
+        assertEquals(0, events.get(0).getFirstRow());
+        assertEquals(99, events.get(0).getLastRow());
+    }
+
+    @Test
+    void removeRowsOfNoRows() {
+        final AveTableModel model = createModel(3);
+        final List<TableModelEvent> events = new ArrayList<>();
+        model.addTableModelListener(events::add);
+        model.removeRows(new int[0]);
+        assertEquals(3, model.getRowCount());
+        assertEquals(0, events.size());
+    }
+
+    @Test
+    void removeRowsRejectsInvalidRow() {
+        final AveTableModel model = createModel(3);
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> model.removeRows(new int[]{1, 3}));
+    }
+
+    @Test
+    void insertRowsFiresOneEvent() {
+        final AveTableModel model = createModel(4);
+        final List<TableModelEvent> events = new ArrayList<>();
+        model.addTableModelListener(events::add);
+        final List<AveTableRowEntry> rows = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            rows.add(new AveTableRowEntry(new Object[]{"new" + i}));
+        }
+        model.insertRows(2, rows);
+        assertEquals(44, model.getRowCount());
+        assertEquals("row1", model.getValueAt(1, 0));
+        assertEquals("new0", model.getValueAt(2, 0));
+        assertEquals("new39", model.getValueAt(41, 0));
+        assertEquals("row2", model.getValueAt(42, 0));
+        assertEquals(1, events.size());
+        assertEquals(TableModelEvent.INSERT, events.get(0).getType());
+        assertEquals(2, events.get(0).getFirstRow());
+        assertEquals(41, events.get(0).getLastRow());
+    }
+}
@@ -0,0 +1,53 @@
+package de.joergwille.playground.shareddatamodel.swing.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link AveChoiceElementCellEditor}.
+ *
+ * @author willejoerg
+ */
+class AveChoiceElementCellEditorTest {
+
+    private final AveChoiceElementCellEditor editor = AveChoiceElementCellEditor.getInstance();
+
+    private Object editedItem(final AveUpdatableSelection<String> selection) {
+        this.editor.getTableCellEditorComponent(null, selection, true, 0, 0);
+        return this.editor.comboBox.getSelectedItem();
+    }
+
+    @Test
+    void showsTheSelectionOfEachEditedCell() {
+        final AveSharedDataModel<String> sharedModel = new AveSharedDataModel<>(new String[]{"a", "b", "c"});
+        final AveUpdatableSelection<String> first = new AveUpdatableSelection<>(sharedModel, "b");
+        final AveUpdatableSelection<String> second = new AveUpdatableSelection<>(sharedModel, "c");
+        assertEquals("b", this.editedItem(first));
+        assertEquals("c", this.editedItem(second));
+        // The combo box model is cached per shared model.
+        assertSame(this.editor.comboBox.getModel(), this.editor.comboBox.getModel());
+        assertEquals("b", this.editedItem(first));
+        first.removeNotify();
+        second.removeNotify();
+    }
+
+    @Test
+    void showsNoSelectionAfterASelectedCell() {
+        final AveSharedDataModel<String> sharedModel = new AveSharedDataModel<>(new String[]{"a", "b"});
+        final AveUpdatableSelection<String> selected = new AveUpdatableSelection<>(sharedModel, "b");
+        final AveUpdatableSelection<String> empty = new AveUpdatableSelection<>(sharedModel, (String) null);
+        // A selection of an item, which is not a member of the shared model anymore.
+        final AveUpdatableSelection<String> stale = new AveUpdatableSelection<>(sharedModel, (Object) "x", null);
+        assertEquals("b", this.editedItem(selected));
+        assertNull(this.editedItem(empty));
+        assertEquals("b", this.editedItem(selected));
+        assertNull(this.editedItem(stale));
+        // Starting to edit does not change the selection of the cell.
+        assertNull(empty.getSelectedItem());
+        assertEquals("b", selected.getSelectedItem());
+        selected.removeNotify();
+        empty.removeNotify();
+    }
+}
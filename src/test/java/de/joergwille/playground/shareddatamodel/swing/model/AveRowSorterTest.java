@@ -0,0 +1,238 @@
+package de.joergwille.playground.shareddatamodel.swing.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import javax.swing.RowFilter;
+import javax.swing.RowSorter.SortKey;
+import javax.swing.SortOrder;
+import javax.swing.event.RowSorterEvent;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link AveRowSorter}. The rows merged after a change of the model
+ * must be in the same order as if all rows were sorted again.
+ *
+ * @author willejoerg
+ */
+class AveRowSorterTest {
+
+    private static final List<SortKey> SORT_KEYS = List.of(new SortKey(1, SortOrder.ASCENDING),
+            new SortKey(0, SortOrder.DESCENDING));
+    private static final RowFilter<Object, Object> FILTER = RowFilter.notFilter(RowFilter.regexFilter("7", 1));
+    private final Random random = new Random(4711);
+
+    private AveTableRowEntry randomRow() {
+        final String[] names = {"alpha", "Beta", "gamma", "delta"};
+        final String value;
+        switch (this.random.nextInt(5)) {
+            case 0:
+                value = "";
+                break;
+            case 1:
+                value = "text" + this.random.nextInt(20);
+                break;
+            default:
+                value = Integer.toString(this.random.nextInt(200) - 50);
+        }
+        return new AveTableRowEntry(new Object[]{names[this.random.nextInt(names.length)], value});
+    }
+
+    private List<AveTableRowEntry> randomRows(int count) {
+        final List<AveTableRowEntry> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(this.randomRow());
+        }
+        return rows;
+    }
+
+    private static int[] viewToModel(final AveRowSorter sorter) {
+        final int[] rows = new int[sorter.getViewRowCount()];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = sorter.convertRowIndexToModel(i);
+            assertEquals(i, sorter.convertRowIndexToView(rows[i]));
+        }
+        return rows;
+    }
+
+    private static AveRowSorter sorted(final AveTableModel model, boolean filtered) {
+        final AveRowSorter sorter = new AveRowSorter(model);
+        sorter.setSortKeys(SORT_KEYS);
+        if (filtered) {
+            sorter.setRowFilter(FILTER);
+        }
+        return sorter;
+    }
+
+    private static void assertSortedAgain(final AveTableModel model, final AveRowSorter sorter, boolean filtered) {
+        assertEquals(model.getRowCount(), sorter.getModelRowCount());
+        assertArrayEquals(viewToModel(sorted(model, filtered)), viewToModel(sorter));
+    }
+
+    @Test
+    void sortsEmptyCellsFirstThenNumbersThenText() {
+        final AveTableModel model = new AveTableModel(new String[]{"Name", "Value"});
+        for (String value : new String[]{"b", "10", "", "9", "-1.5", "a"}) {
+            model.addRow(new AveTableRowEntry(new Object[]{"name", value}));
+        }
+        final AveRowSorter sorter = new AveRowSorter(model);
+        sorter.setSortKeys(List.of(new SortKey(1, SortOrder.ASCENDING)));
+        assertArrayEquals(new int[]{2, 4, 3, 1, 5, 0}, viewToModel(sorter));
+        sorter.setSortKeys(List.of(new SortKey(1, SortOrder.DESCENDING)));
+        assertArrayEquals(new int[]{0, 5, 1, 3, 4, 2}, viewToModel(sorter));
+    }
+
+    @Test
+    void equalRowsKeepTheOrderOfTheModel() {
+        final AveTableModel model = new AveTableModel(new String[]{"Name", "Value"});
+        for (int i = 0; i < 50; i++) {
+            model.addRow(new AveTableRowEntry(new Object[]{"same", "1"}));
+        }
+        final AveRowSorter sorter = new AveRowSorter(model);
+        sorter.setSortKeys(List.of(new SortKey(1, SortOrder.DESCENDING)));
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i, sorter.convertRowIndexToModel(i));
+        }
+    }
+
+    @Test
+    void mergedChangesMatchSortingAgain() {
+        for (boolean filtered : new boolean[]{false, true}) {
+            final AveTableModel model = new AveTableModel(new String[]{"Name", "Value"});
+            model.addRows(this.randomRows(300));
+            final AveRowSorter sorter = sorted(model, filtered);
+            for (int step = 0; step < 300; step++) {
+                final int rowCount = model.getRowCount();
+                final int operation = this.random.nextInt(4);
+                if (operation == 0 || rowCount < 10) {
+                    final int firstRow = this.random.nextInt(rowCount + 1);
+                    final int count = 1 + this.random.nextInt(30);
+                    model.insertRows(firstRow, this.randomRows(count));
+                    sorter.rowsInserted(firstRow, firstRow + count - 1);
+                } else if (operation == 1) {
+                    final int firstRow = this.random.nextInt(rowCount);
+                    final int endRow = Math.min(rowCount - 1, firstRow + this.random.nextInt(20));
+                    model.removeRange(firstRow, endRow);
+                    sorter.rowsDeleted(firstRow, endRow);
+                } else {
+                    final int firstRow = this.random.nextInt(rowCount);
+                    final int endRow = Math.min(rowCount - 1, firstRow + this.random.nextInt(10));
+                    for (int row = firstRow; row <= endRow; row++) {
+                        model.setValueAt(this.randomRow().getRowDataForColumn(1), row, 1);
+                    }
+                    if (operation == 2) {
+                        sorter.rowsUpdated(firstRow, endRow);
+                    } else {
+                        sorter.rowsUpdated(firstRow, endRow, 1);
+                    }
+                }
+                assertSortedAgain(model, sorter, filtered);
+            }
+        }
+    }
+
+    @Test
+    void filterChangedOfSomeRowsMatchesFilteringAgain() {
+        final AveTableModel model = new AveTableModel(new String[]{"Name", "Value"});
+        model.addRows(this.randomRows(200));
+        final AveRowSorter sorter = sorted(model, false);
+        final boolean[] excluded = new boolean[model.getRowCount()];
+        sorter.setRowFilter(new RowFilter<Object, Integer>() {
+            @Override
+            public boolean include(final Entry<? extends Object, ? extends Integer> entry) {
+                return !excluded[entry.getIdentifier()];
+            }
+        });
+        for (int step = 0; step < 100; step++) {
+            final int[] rows = new int[1 + this.random.nextInt(5)];
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = this.random.nextInt(excluded.length);
+                excluded[rows[i]] = !excluded[rows[i]];
+            }
+            sorter.filterChanged(rows);
+            final List<Integer> expected = new ArrayList<>();
+            for (int row : viewToModel(sorted(model, false))) {
+                if (!excluded[row]) {
+                    expected.add(row);
+                }
+            }
+            assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), viewToModel(sorter));
+        }
+    }
+
+    @Test
+    void rowsUpdatedFiresSortedOnlyIfTheOrderChanged() {
+        final AveTableModel model = new AveTableModel(new String[]{"Name", "Value"});
+        for (int i = 0; i < 5; i++) {
+            model.addRow(new AveTableRowEntry(new Object[]{"name", Integer.toString(i)}));
+        }
+        final AveRowSorter sorter = new AveRowSorter(model);
+        sorter.setSortKeys(List.of(new SortKey(1, SortOrder.ASCENDING)));
+        final List<RowSorterEvent> events = new ArrayList<>();
+        sorter.addRowSorterListener(events::add);
+        model.setValueAt("2.5", 2, 1);
+        sorter.rowsUpdated(2, 2, 1);
+        assertTrue(events.isEmpty());
+        model.setValueAt("10", 0, 1);
+        sorter.rowsUpdated(0, 0);
+        assertEquals(1, events.size());
+        assertEquals(RowSorterEvent.Type.SORTED, events.get(0).getType());
+        assertEquals(0, events.get(0).convertPreviousRowIndexToModel(0));
+        assertArrayEquals(new int[]{1, 2, 3, 4, 0}, viewToModel(sorter));
+    }
+
+    @Test
+    void unsortedSorterDoesNotMapRows() {
+        final AveTableModel model = new AveTableModel(new String[]{"Name", "Value"});
+        model.addRows(this.randomRows(10));
+        final AveRowSorter sorter = new AveRowSorter(model);
+        model.insertRows(3, this.randomRows(2));
+        sorter.rowsInserted(3, 4);
+        assertEquals(12, sorter.getViewRowCount());
+        assertEquals(7, sorter.convertRowIndexToModel(7));
+    }
+
+    @Test
+    void parallelSortMatchesSequentialSort() {
+        // Enough rows to sort in parallel, if there is more than one core.
+        final AveTableModel model = new AveTableModel(new String[]{"Name", "Value"});
+        model.addRows(this.randomRows(40_000));
+        final AveRowSorter sorter = sorted(model, true);
+        final AveRowSorter parallelSorter = new AveRowSorter(model);
+        parallelSorter.setParallelSort(true);
+        parallelSorter.setSortKeys(SORT_KEYS);
+        parallelSorter.setRowFilter(FILTER);
+        assertArrayEquals(viewToModel(sorter), viewToModel(parallelSorter));
+        model.insertRows(100, this.randomRows(50));
+        parallelSorter.rowsInserted(100, 149);
+        assertSortedAgain(model, parallelSorter, true);
+    }
+
+    @Test
+    void virtualModelIsNotSortable() {
+        final AveTableSchema schema = new AveTableSchema(new String[]{"string"}, null, null);
+        final AveVirtualTableModel model = new AveVirtualTableModel(new String[]{"Name"}, schema, new AveRowProvider() {
+            @Override
+            public int getRowCount() {
+                return 1_000_000;
+            }
+
+            @Override
+            public AveTableRowEntry createRow(int row) {
+                throw new AssertionError("no row must be created");
+            }
+        });
+        final AveRowSorter sorter = new AveRowSorter(model);
+        assertTrue(!sorter.isSortable());
+        sorter.toggleSortOrder(0);
+        assertTrue(sorter.getSortKeys().isEmpty());
+        assertThrows(UnsupportedOperationException.class,
+                () -> sorter.setSortKeys(Arrays.asList(new SortKey(0, SortOrder.ASCENDING))));
+        assertEquals(0, model.getMaterializedRowCount());
+    }
+}
@@ -0,0 +1,38 @@
+package de.joergwille.playground.shareddatamodel.swing.model;
+
+import java.util.Arrays;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link AveSharedDataModel}.
+ *
+ * @author willejoerg
+ */
+class AveSharedDataModelTest {
+
+    @Test
+    void renderingPrototypeFollowsChangesWithoutAutoSet() {
+        final AveSharedDataModel<String> model = new AveSharedDataModel<>(new String[]{"ii", "WWWW", "mm"}, false);
+        assertEquals("WWWW", model.getRenderingPrototype());
+        model.addElement("WWWWWWWW");
+        assertEquals("WWWWWWWW", model.getRenderingPrototype());
+        model.removeElement("WWWWWWWW");
+        assertEquals("WWWW", model.getRenderingPrototype());
+        // The items are only updated, if there is a listener or selection.
+        final AveUpdatableSelection<String> selection = new AveUpdatableSelection<>(model, "ii");
+        model.update(Arrays.asList("i", "MMMMMM"));
+        assertEquals("MMMMMM", model.getRenderingPrototype());
+        model.clear();
+        assertNull(model.getRenderingPrototype());
+        selection.removeNotify();
+    }
+
+    @Test
+    void renderingPrototypeIsThePrototypeDisplayValue() {
+        final AveSharedDataModel<String> model = new AveSharedDataModel<>(new String[]{"ii", "WWWW"}, false);
+        model.setPrototypeDisplayValue("prototype");
+        assertEquals("prototype", model.getRenderingPrototype());
+    }
+}
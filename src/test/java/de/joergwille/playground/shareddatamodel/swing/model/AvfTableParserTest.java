@@ -0,0 +1,128 @@
+package de.joergwille.playground.shareddatamodel.swing.model;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link AvfTableParser}.
+ *
+ * @author willejoerg
+ */
+class AvfTableParserTest {
+
+    private static Object[] row(final List<AveTableRowEntry> rows, int row) {
+        return rows.get(row).getRowData();
+    }
+
+    @Test
+    void parsesVectorIntoFirstColumn() {
+        final List<AveTableRowEntry> rows = AvfTableParser.parseRows(" ( a1 , a2,a3 ) ", 2);
+        assertEquals(3, rows.size());
+        assertArrayEquals(new Object[]{"a1", null}, row(rows, 0));
+        assertArrayEquals(new Object[]{"a2", null}, row(rows, 1));
+        assertArrayEquals(new Object[]{"a3", null}, row(rows, 2));
+    }
+
+    @Test
+    void parsesTwoDimensionalTable() {
+        final List<AveTableRowEntry> rows = AvfTableParser.parseRows("([a, b ,c],\n [d,e,f])", 3);
+        assertEquals(2, rows.size());
+        assertArrayEquals(new Object[]{"a", "b", "c"}, row(rows, 0));
+        assertArrayEquals(new Object[]{"d", "e", "f"}, row(rows, 1));
+    }
+
+    @Test
+    void keepsCommasInsideParentheses() {
+        final List<AveTableRowEntry> rows = AvfTableParser.parseRows("([parval(a,test0), x],[f(g(1,2),3) ,y])", 2);
+        assertArrayEquals(new Object[]{"parval(a,test0)", "x"}, row(rows, 0));
+        assertArrayEquals(new Object[]{"f(g(1,2),3)", "y"}, row(rows, 1));
+        assertArrayEquals(new Object[]{"max(1,2)"},
+                row(AvfTableParser.parseRows("(max(1,2))", 1), 0));
+    }
+
+    @Test
+    void shorterRowsLeaveMissingCellsEmpty() {
+        final List<AveTableRowEntry> rows = AvfTableParser.parseRows("([a],[b])", 3);
+        assertArrayEquals(new Object[]{"a", null, null}, row(rows, 0));
+        assertArrayEquals(new Object[]{"b", null, null}, row(rows, 1));
+    }
+
+    @Test
+    void parsesEmptyTableAndEmptyCells() {
+        assertTrue(AvfTableParser.parseRows("( )", 1).isEmpty());
+        final List<AveTableRowEntry> rows = AvfTableParser.parseRows("(a,,b)", 1);
+        assertEquals(3, rows.size());
+        assertEquals("", row(rows, 1)[0]);
+    }
+
+    @Test
+    void rejectsInvalidTables() {
+        assertThrows(IllegalArgumentException.class, () -> AvfTableParser.parseRows("a,b", 1));
+        assertThrows(IllegalArgumentException.class, () -> AvfTableParser.parseRows("(a,b", 1));
+        assertThrows(IllegalArgumentException.class, () -> AvfTableParser.parseRows("(a,b) c", 1));
+        assertThrows(IllegalArgumentException.class, () -> AvfTableParser.parseRows("([a,b],[c])", 2));
+        assertThrows(IllegalArgumentException.class, () -> AvfTableParser.parseRows("([a,b,c])", 2));
+        assertThrows(IllegalArgumentException.class, () -> AvfTableParser.parseRows("([a,b] [c,d])", 2));
+    }
+
+    @Test
+    void readerAndCharSequenceGiveTheSameRows() throws IOException {
+        // The table is larger than the buffer of the parser, so cells are split across reads.
+        final StringBuilder contents = new StringBuilder("(");
+        for (int i = 0; i < 5000; i++) {
+            contents.append(i > 0 ? ", " : "").append("[cell").append(i).append(", f(").append(i).append(",x)]");
+        }
+        contents.append(")");
+        final List<AveTableRowEntry> rows = AvfTableParser.parseRows(contents, 2);
+        final List<AveTableRowEntry> readRows = AvfTableParser.parseRows(new StringReader(contents.toString()), 2);
+        assertEquals(5000, rows.size());
+        assertEquals(rows.size(), readRows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            assertArrayEquals(new Object[]{"cell" + i, "f(" + i + ",x)"}, row(rows, i));
+            assertArrayEquals(row(rows, i), row(readRows, i));
+        }
+    }
+
+    @Test
+    void passesRowsInChunks() throws IOException {
+        final StringBuilder contents = new StringBuilder("(");
+        for (int i = 0; i < 250; i++) {
+            contents.append(i > 0 ? "," : "").append("v").append(i);
+        }
+        contents.append(")");
+        final List<Integer> chunkSizes = new ArrayList<>();
+        final List<Long> positions = new ArrayList<>();
+        final List<AveTableRowEntry> rows = new ArrayList<>();
+        final int rowCount = AvfTableParser.parseRows(new StringReader(contents.toString()), 1, 100,
+                (chunk, position) -> {
+                    chunkSizes.add(chunk.size());
+                    positions.add(position);
+                    rows.addAll(chunk);
+                });
+        assertEquals(250, rowCount);
+        assertEquals(List.of(100, 100, 50), chunkSizes);
+        for (int i = 1; i < positions.size(); i++) {
+            assertTrue(positions.get(i) > positions.get(i - 1));
+        }
+        assertEquals(contents.length(), (long) positions.get(positions.size() - 1));
+        for (int i = 0; i < rows.size(); i++) {
+            assertEquals("v" + i, row(rows, i)[0]);
+        }
+    }
+
+    @Test
+    void chunksBeforeAnErrorRemainValid() {
+        final List<AveTableRowEntry> rows = new ArrayList<>();
+        assertThrows(IllegalArgumentException.class,
+                () -> AvfTableParser.parseRows("([a],[b],[c],[d,e])", 2, 2, (chunk, position) -> rows.addAll(chunk)));
+        assertEquals(2, rows.size());
+        assertEquals("b", row(rows, 1)[0]);
+    }
+}
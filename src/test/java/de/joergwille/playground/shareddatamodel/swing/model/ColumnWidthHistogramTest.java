@@ -0,0 +1,72 @@
+package de.joergwille.playground.shareddatamodel.swing.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link ColumnWidthHistogram}.
+ *
+ * @author willejoerg
+ */
+class ColumnWidthHistogramTest {
+
+    @Test
+    void emptyColumnHasNoWidth() {
+        final ColumnWidthHistogram histogram = new ColumnWidthHistogram();
+        assertEquals(0, histogram.getRowCount());
+        assertEquals(0, histogram.getBestWidth());
+    }
+
+    @Test
+    void bestWidthFollowsInsertDeleteAndUpdate() {
+        final ColumnWidthHistogram histogram = new ColumnWidthHistogram();
+        histogram.insertRows(0, new int[]{10, 30, 20});
+        assertEquals(30, histogram.getBestWidth());
+        histogram.insertRows(1, new int[]{30});
+        // Deleting one of two widest cells keeps the width.
+        histogram.deleteRows(1, 1);
+        assertEquals(30, histogram.getBestWidth());
+        histogram.deleteRows(1, 1);
+        assertEquals(20, histogram.getBestWidth());
+        histogram.updateRow(0, 50);
+        assertEquals(50, histogram.getBestWidth());
+        histogram.updateRow(0, 5);
+        assertEquals(20, histogram.getBestWidth());
+        histogram.deleteRows(0, 1);
+        assertEquals(0, histogram.getRowCount());
+        assertEquals(0, histogram.getBestWidth());
+    }
+
+    @Test
+    void randomChangesMatchFullMeasurement() {
+        final Random random = new Random(4711);
+        final ColumnWidthHistogram histogram = new ColumnWidthHistogram();
+        final List<Integer> widths = new ArrayList<>();
+        for (int step = 0; step < 2000; step++) {
+            final int operation = random.nextInt(3);
+            if (operation == 0 || widths.isEmpty()) {
+                final int firstRow = random.nextInt(widths.size() + 1);
+                final int[] inserted = new int[1 + random.nextInt(40)];
+                for (int i = 0; i < inserted.length; i++) {
+                    inserted[i] = random.nextInt(200);
+                    widths.add(firstRow + i, inserted[i]);
+                }
+                histogram.insertRows(firstRow, inserted);
+            } else if (operation == 1) {
+                final int firstRow = random.nextInt(widths.size());
+                final int lastRow = firstRow + random.nextInt(Math.min(20, widths.size() - firstRow));
+                widths.subList(firstRow, lastRow + 1).clear();
+                histogram.deleteRows(firstRow, lastRow);
+            } else {
+                final int row = random.nextInt(widths.size());
+                widths.set(row, random.nextInt(200));
+                histogram.updateRow(row, widths.get(row));
+            }
+            assertEquals(widths.size(), histogram.getRowCount());
+            assertEquals(widths.stream().mapToInt(Integer::intValue).max().orElse(0), histogram.getBestWidth());
+        }
+    }
+}
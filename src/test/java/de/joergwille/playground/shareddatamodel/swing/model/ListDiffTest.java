@@ -0,0 +1,118 @@
+package de.joergwille.playground.shareddatamodel.swing.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link ListDiff}.
+ *
+ * @author willejoerg
+ */
+class ListDiffTest {
+
+    // Applies the hunks from the last to the first, so the indices of the old list stay valid.
+    private static <E> List<E> apply(final List<E> oldItems, final List<E> newItems, final List<ListDiff.Hunk> hunks) {
+        final List<E> items = new ArrayList<>(oldItems);
+        for (int i = hunks.size() - 1; i >= 0; i--) {
+            final ListDiff.Hunk hunk = hunks.get(i);
+            items.subList(hunk.oldFrom, hunk.oldFrom + hunk.oldCount).clear();
+            items.addAll(hunk.oldFrom, newItems.subList(hunk.newFrom, hunk.newFrom + hunk.newCount));
+        }
+        return items;
+    }
+
+    private static void assertTransforms(final List<String> oldItems, final List<String> newItems) {
+        final List<ListDiff.Hunk> hunks = ListDiff.compute(oldItems, newItems);
+        assertEquals(newItems, apply(oldItems, newItems, hunks), hunks.toString());
+        int oldEnd = 0;
+        int newEnd = 0;
+        for (ListDiff.Hunk hunk : hunks) {
+            assertTrue(hunk.oldCount > 0 || hunk.newCount > 0, hunk.toString());
+            assertTrue(hunk.oldFrom >= oldEnd && hunk.newFrom >= newEnd, "hunks not ascending: " + hunks);
+            oldEnd = hunk.oldFrom + hunk.oldCount;
+            newEnd = hunk.newFrom + hunk.newCount;
+        }
+    }
+
+    @Test
+    void equalListsHaveNoHunk() {
+        final List<String> items = Arrays.asList("a", "b", "c");
+        assertTrue(ListDiff.compute(items, new ArrayList<>(items)).isEmpty());
+        assertTrue(ListDiff.compute(Collections.emptyList(), Collections.emptyList()).isEmpty());
+    }
+
+    @Test
+    void insertionIsOneHunk() {
+        final List<ListDiff.Hunk> hunks = ListDiff.compute(Arrays.asList("a", "b", "c"),
+                Arrays.asList("a", "x", "y", "b", "c"));
+        assertEquals(1, hunks.size());
+        final ListDiff.Hunk hunk = hunks.get(0);
+        assertEquals(1, hunk.oldFrom);
+        assertEquals(0, hunk.oldCount);
+        assertEquals(1, hunk.newFrom);
+        assertEquals(2, hunk.newCount);
+    }
+
+    @Test
+    void removalIsOneHunk() {
+        final List<ListDiff.Hunk> hunks = ListDiff.compute(Arrays.asList("a", "b", "c", "d"),
+                Arrays.asList("a", "d"));
+        assertEquals(1, hunks.size());
+        final ListDiff.Hunk hunk = hunks.get(0);
+        assertEquals(1, hunk.oldFrom);
+        assertEquals(2, hunk.oldCount);
+        assertEquals(0, hunk.newCount);
+    }
+
+    @Test
+    void movedElementKeepsTheOthers() {
+        // The longest common subsequence is b, c, d, so only a is removed and inserted again.
+        final List<String> oldItems = Arrays.asList("a", "b", "c", "d");
+        final List<String> newItems = Arrays.asList("b", "c", "d", "a");
+        final List<ListDiff.Hunk> hunks = ListDiff.compute(oldItems, newItems);
+        assertEquals(2, hunks.size());
+        int changed = 0;
+        for (ListDiff.Hunk hunk : hunks) {
+            changed += hunk.oldCount + hunk.newCount;
+        }
+        assertEquals(2, changed);
+        assertTransforms(oldItems, newItems);
+    }
+
+    @Test
+    void replacedListIsOneHunk() {
+        final List<ListDiff.Hunk> hunks = ListDiff.compute(Arrays.asList("a", "b"), Arrays.asList("x", "y", "z"));
+        assertEquals(1, hunks.size());
+        assertEquals(2, hunks.get(0).oldCount);
+        assertEquals(3, hunks.get(0).newCount);
+    }
+
+    @Test
+    void randomChangesTransformTheList() {
+        final Random random = new Random(4711);
+        for (int run = 0; run < 500; run++) {
+            final List<String> oldItems = new ArrayList<>();
+            for (int i = 0, n = random.nextInt(40); i < n; i++) {
+                oldItems.add("item" + i);
+            }
+            final List<String> newItems = new ArrayList<>(oldItems);
+            for (int i = 0, n = random.nextInt(10); i < n; i++) {
+                final int operation = random.nextInt(3);
+                if (operation == 0 || newItems.isEmpty()) {
+                    newItems.add(random.nextInt(newItems.size() + 1), "new" + run + "_" + i);
+                } else if (operation == 1) {
+                    newItems.remove(random.nextInt(newItems.size()));
+                } else {
+                    newItems.add(random.nextInt(newItems.size()), newItems.remove(random.nextInt(newItems.size())));
+                }
+            }
+            assertTransforms(oldItems, newItems);
+        }
+    }
+}